@@ -0,0 +1,55 @@
+package com.pms.analytics.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    // The services log per call; building the messages is measured, writing them is not.
+    static void silenceOutput() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    /**
+     * Interface stub answering the named methods with canned results, for
+     * repositories the benchmarked code reads from. Anything else throws, so a
+     * benchmark cannot silently start measuring a different path.
+     */
+    static <T> T stub(Class<T> type, Map<String, Supplier<?>> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Supplier<?> answer = answers.get(method.getName());
+                    if (answer != null) {
+                        return answer.get();
+                    }
+                    return switch (method.getName()) {
+                        case "toString" -> type.getSimpleName() + "Stub";
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                }));
+    }
+
+    // Fails the trial when a candidate kernel drifts from the BigDecimal result it is meant to replace.
+    static void assertClose(String what, double expected, double actual, double relativeTolerance,
+            double absoluteTolerance) {
+        double allowed = Math.max(absoluteTolerance, relativeTolerance * Math.abs(expected));
+        if (!(Math.abs(expected - actual) <= allowed)) {
+            throw new IllegalStateException(what + ": expected " + expected + " but candidate gave " + actual
+                    + " (allowed difference " + allowed + ")");
+        }
+    }
+}
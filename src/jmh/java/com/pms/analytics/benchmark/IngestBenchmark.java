@@ -0,0 +1,182 @@
+package com.pms.analytics.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pms.analytics.dao.entity.AnalysisEntity;
+import com.pms.analytics.dao.entity.AnalysisEntity.AnalysisKey;
+import com.pms.analytics.dto.TransactionDto;
+import com.pms.analytics.dto.TransactionOuterClass.Transaction;
+import com.pms.analytics.mapper.TransactionMapper;
+import com.pms.analytics.service.TransactionService;
+import com.pms.analytics.utilities.PositionAccounting;
+
+/**
+ * Per-transaction CPU cost of the ingest path without Kafka or the DB: decoding,
+ * mapping and applying trades to an already loaded position cache. Trades come
+ * in buy/sell pairs of the same size on the same position, so holdings stay
+ * stable however many iterations run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IngestBenchmark {
+
+    private static final int MESSAGES = 1 << 12;
+    private static final int SYMBOLS = 500;
+    private static final int POSITIONS_PER_PORTFOLIO = 10;
+
+    @Param({"1000", "100000"})
+    public int positions;
+
+    private byte[][] encoded;
+    private Transaction[] messages;
+    private TransactionDto[] trades;
+
+    private Map<AnalysisKey, AnalysisEntity> cachedAnalysisMap;
+    private TransactionService transactionService;
+    private AnalysisEntity position;
+
+    private int next;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // processTransaction logs every trade; building the line is measured, writing it is not
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        SplittableRandom random = new SplittableRandom(42);
+
+        List<AnalysisKey> keys = new ArrayList<>(positions);
+        Map<AnalysisKey, BigDecimal> prices = new HashMap<>();
+        cachedAnalysisMap = new HashMap<>(positions * 2);
+
+        for (int p = 0; keys.size() < positions; p++) {
+            UUID portfolioId = new UUID(random.nextLong(), random.nextLong());
+            for (int s = 0; s < POSITIONS_PER_PORTFOLIO && keys.size() < positions; s++) {
+                AnalysisKey key = new AnalysisKey(portfolioId, "SYM" + random.nextInt(SYMBOLS));
+                if (cachedAnalysisMap.containsKey(key)) {
+                    continue;
+                }
+
+                BigDecimal price = price(random);
+                long holdings = 1_000L + random.nextInt(100_000);
+                cachedAnalysisMap.put(key, new AnalysisEntity(key, holdings,
+                        price.multiply(BigDecimal.valueOf(holdings)), BigDecimal.ZERO, null, null));
+                prices.put(key, price);
+                keys.add(key);
+            }
+        }
+
+        encoded = new byte[MESSAGES][];
+        messages = new Transaction[MESSAGES];
+        trades = new TransactionDto[MESSAGES];
+
+        for (int i = 0; i < MESSAGES; i += 2) {
+            AnalysisKey key = keys.get(random.nextInt(keys.size()));
+            BigDecimal buyPrice = prices.get(key);
+            BigDecimal sellPrice = buyPrice.add(BigDecimal.valueOf(random.nextInt(-500, 500), 2));
+            long quantity = 1 + random.nextInt(100);
+
+            messages[i] = transaction(key, "BUY", buyPrice, BigDecimal.ZERO, quantity);
+            messages[i + 1] = transaction(key, "SELL", buyPrice, sellPrice, quantity);
+        }
+
+        for (int i = 0; i < MESSAGES; i++) {
+            encoded[i] = messages[i].toByteArray();
+            trades[i] = TransactionMapper.fromProto(messages[i]);
+        }
+
+        // processTransaction only touches the cache it is given
+        transactionService = new TransactionService(null, null, null, null);
+
+        AnalysisKey key = keys.get(0);
+        position = new AnalysisEntity(key, 1_000_000L, prices.get(key).multiply(BigDecimal.valueOf(1_000_000L)),
+                BigDecimal.ZERO, null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public Transaction parseFrom() throws InvalidProtocolBufferException {
+        return Transaction.parseFrom(encoded[next++ & (MESSAGES - 1)]);
+    }
+
+    @Benchmark
+    public TransactionDto fromProto() {
+        return TransactionMapper.fromProto(messages[next++ & (MESSAGES - 1)]);
+    }
+
+    @Benchmark
+    public Map<AnalysisKey, AnalysisEntity> processTransaction() {
+        transactionService.processTransaction(trades[next++ & (MESSAGES - 1)], cachedAnalysisMap);
+        return cachedAnalysisMap;
+    }
+
+    // The per-message work of TransactionService.processBatchInTransaction after the batch lookup
+    @Benchmark
+    public Map<AnalysisKey, AnalysisEntity> parseMapAndProcess() throws InvalidProtocolBufferException {
+        Transaction message = Transaction.parseFrom(encoded[next++ & (MESSAGES - 1)]);
+        transactionService.processTransaction(TransactionMapper.fromProto(message), cachedAnalysisMap);
+        return cachedAnalysisMap;
+    }
+
+    @Benchmark
+    public AnalysisEntity applyBuyThenSell() {
+        TransactionDto buy = trades[next & (MESSAGES - 1) & ~1];
+        next += 2;
+
+        PositionAccounting.applyBuy(position, buy.getQuantity(), buy.getBuyPrice());
+        PositionAccounting.applySell(position, buy.getQuantity(), buy.getBuyPrice().add(BigDecimal.ONE),
+                buy.getBuyPrice());
+        return position;
+    }
+
+    private static Transaction transaction(AnalysisKey key, String side, BigDecimal buyPrice,
+            BigDecimal sellPrice, long quantity) {
+        return Transaction.newBuilder()
+                .setTransactionId(UUID.randomUUID().toString())
+                .setPortfolioId(key.getPortfolioId().toString())
+                .setSymbol(key.getSymbol())
+                .setSide(side)
+                .setBuyPrice(buyPrice.toPlainString())
+                .setSellPrice(sellPrice.toPlainString())
+                .setQuantity(quantity)
+                .build();
+    }
+
+    // 10.00 to 1000.00 with two decimals, like exchange quotes
+    private static BigDecimal price(SplittableRandom random) {
+        return BigDecimal.valueOf(1_000 + random.nextInt(99_000), 2);
+    }
+}
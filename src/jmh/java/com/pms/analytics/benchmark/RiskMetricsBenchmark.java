@@ -0,0 +1,190 @@
+package com.pms.analytics.benchmark;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pms.analytics.dao.AnalysisDao;
+import com.pms.analytics.dao.PortfolioValueHistoryDao;
+import com.pms.analytics.dao.entity.AnalysisEntity;
+import com.pms.analytics.dao.entity.AnalysisEntity.AnalysisKey;
+import com.pms.analytics.dao.entity.AnalysisOutbox;
+import com.pms.analytics.dao.entity.PortfolioValueHistoryEntity;
+import com.pms.analytics.dto.RiskEventDto;
+import com.pms.analytics.service.PriceSnapshot;
+import com.pms.analytics.service.RiskMetricsService;
+import com.pms.analytics.utilities.RiskStatistics;
+
+/**
+ * Risk math on synthetic daily value series. {@code computeRiskEvent} runs the
+ * whole service step over stubbed repositories (its history window is fixed at
+ * 29 days plus today); the statistics kernel alone is measured over longer
+ * windows, next to a double-precision candidate that must reproduce it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RiskMetricsBenchmark {
+
+    @State(Scope.Thread)
+    public static class ServiceState {
+
+        @Param({"10", "100", "1000"})
+        public int positions;
+
+        RiskMetricsService riskMetricsService;
+        PriceSnapshot snapshot;
+        UUID portfolioId;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            BenchmarkSupport.silenceOutput();
+
+            SplittableRandom random = new SplittableRandom(42);
+            portfolioId = new UUID(random.nextLong(), random.nextLong());
+
+            List<PortfolioValueHistoryEntity> history = new ArrayList<>(29);
+            List<BigDecimal> values = dailyValues(random, 29);
+            LocalDate date = LocalDate.now();
+            for (int day = 0; day < 29; day++) {
+                // newest first, as findTop29ByPortfolioIdOrderByDateDesc returns them
+                date = date.minusDays(1);
+                history.add(new PortfolioValueHistoryEntity(null, portfolioId, date,
+                        values.get(values.size() - 1 - day), null, null));
+            }
+
+            List<AnalysisEntity> held = new ArrayList<>(positions);
+            Map<String, BigDecimal> prices = new HashMap<>(positions * 2);
+            for (int i = 0; i < positions; i++) {
+                String symbol = "SYM" + i;
+                long holdings = 10 + random.nextInt(1_000);
+                held.add(new AnalysisEntity(new AnalysisKey(portfolioId, symbol), holdings,
+                        BigDecimal.ZERO, BigDecimal.ZERO, null, null));
+                prices.put(symbol, BigDecimal.valueOf(1_000 + random.nextInt(99_000), 2));
+            }
+            snapshot = PriceSnapshot.of(1L, System.currentTimeMillis(), prices);
+
+            PortfolioValueHistoryDao historyDao = BenchmarkSupport.stub(PortfolioValueHistoryDao.class,
+                    Map.of("findTop29ByPortfolioIdOrderByDateDesc", () -> history));
+            AnalysisDao analysisDao = BenchmarkSupport.stub(AnalysisDao.class,
+                    Map.of("findByIdPortfolioId", () -> held));
+
+            riskMetricsService = new RiskMetricsService(historyDao, analysisDao, null, null);
+            if (riskMetricsService.computeRiskEvent(portfolioId, new ArrayList<>(), snapshot) == null) {
+                throw new IllegalStateException("Synthetic data does not reach the risk computation");
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SeriesState {
+
+        @Param({"30", "90", "250"})
+        public int window;
+
+        UUID portfolioId;
+        List<BigDecimal> values;
+        double[] doubleValues;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            SplittableRandom random = new SplittableRandom(7);
+            portfolioId = new UUID(random.nextLong(), random.nextLong());
+            values = dailyValues(random, window);
+
+            doubleValues = new double[window];
+            for (int i = 0; i < window; i++) {
+                doubleValues[i] = values.get(i).doubleValue();
+            }
+
+            // float outputs and 8-digit returns bound how closely any candidate can match
+            RiskEventDto expected = RiskStatistics.compute(portfolioId, values);
+            double[] candidate = doubleStatistics(doubleValues);
+            BenchmarkSupport.assertClose("average return", expected.getAvgRateOfReturn(), candidate[0], 1e-4, 1e-7);
+            BenchmarkSupport.assertClose("sharpe ratio", expected.getSharpeRatio(), candidate[1], 1e-4, 1e-6);
+            BenchmarkSupport.assertClose("sortino ratio", expected.getSortinoRatio(), candidate[2], 1e-4, 1e-6);
+        }
+    }
+
+    @Benchmark
+    public RiskEventDto computeRiskEvent(ServiceState state) {
+        List<AnalysisOutbox> outbox = new ArrayList<>(1);
+        return state.riskMetricsService.computeRiskEvent(state.portfolioId, outbox, state.snapshot);
+    }
+
+    @Benchmark
+    public RiskEventDto riskStatistics(SeriesState state) {
+        return RiskStatistics.compute(state.portfolioId, state.values);
+    }
+
+    @Benchmark
+    public double[] riskStatisticsDouble(SeriesState state) {
+        return doubleStatistics(state.doubleValues);
+    }
+
+    // Same definitions as RiskStatistics in doubles: {average return, sharpe, sortino}.
+    static double[] doubleStatistics(double[] values) {
+        int returns = values.length - 1;
+        double sum = 0;
+        double sumNegativeSquared = 0;
+        int negativeCount = 0;
+
+        for (int i = 0; i < returns; i++) {
+            double dailyReturn = (values[i + 1] - values[i]) / values[i];
+            sum += dailyReturn;
+            if (dailyReturn < 0) {
+                sumNegativeSquared += dailyReturn * dailyReturn;
+                negativeCount++;
+            }
+        }
+        double average = sum / returns;
+
+        double variance = 0;
+        for (int i = 0; i < returns; i++) {
+            double deviation = (values[i + 1] - values[i]) / values[i] - average;
+            variance += deviation * deviation;
+        }
+        double stdDev = Math.sqrt(variance / (returns - 1));
+        double downsideDev = negativeCount > 0 ? Math.sqrt(sumNegativeSquared / negativeCount) : 0;
+
+        return new double[]{
+                average,
+                stdDev > 0 ? average / stdDev : 0,
+                downsideDev > 0 ? average / downsideDev : 0
+        };
+    }
+
+    // Random walk of portfolio values in cents, moving up to 2% a day.
+    static List<BigDecimal> dailyValues(SplittableRandom random, int days) {
+        List<BigDecimal> values = new ArrayList<>(days);
+        BigDecimal value = BigDecimal.valueOf(100_000_000, 2);
+        for (int day = 0; day < days; day++) {
+            values.add(value);
+            BigDecimal move = BigDecimal.valueOf(random.nextInt(-200, 201), 4);
+            value = value.add(value.multiply(move)).setScale(2, RoundingMode.HALF_UP);
+        }
+        return values;
+    }
+}
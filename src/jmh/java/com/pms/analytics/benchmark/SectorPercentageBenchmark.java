@@ -0,0 +1,107 @@
+package com.pms.analytics.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pms.analytics.dao.AnalysisDao;
+import com.pms.analytics.dto.SectorMetricsDto;
+import com.pms.analytics.dto.SymbolMetricsDto;
+import com.pms.analytics.service.SectorAnalysisServie;
+import com.pms.analytics.service.SectorRollupIndex;
+
+/**
+ * calculateSectorPercentage and calculateSymbolPercentage, reached through the
+ * DB fallback of SectorAnalysisServie with the grouped rows served by a stub
+ * and the in-memory rollup left unbuilt.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SectorPercentageBenchmark {
+
+    @Param({"11", "100", "1000"})
+    public int rows;
+
+    private SectorAnalysisServie sectorAnalysis;
+    private List<SectorMetricsDto> sectors;
+    private List<SymbolMetricsDto> symbols;
+    private BigDecimal[] invested;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+
+        sectors = new ArrayList<>(rows);
+        symbols = new ArrayList<>(rows);
+        invested = new BigDecimal[rows];
+        for (int i = 0; i < rows; i++) {
+            invested[i] = BigDecimal.valueOf(random.nextLong(100_000, 10_000_000_000L), 2);
+            BigDecimal realized = BigDecimal.valueOf(random.nextLong(-100_000_000, 100_000_000), 2);
+            long holdings = random.nextLong(1, 1_000_000);
+
+            sectors.add(new SectorMetricsDto("Sector" + i, holdings, invested[i], realized));
+            symbols.add(new SymbolMetricsDto("SYM" + i, holdings, invested[i], realized));
+        }
+
+        AnalysisDao analysisDao = BenchmarkSupport.stub(AnalysisDao.class, Map.of(
+                "overallSectorAnalysis", () -> sectors,
+                "sectorWiseAnalysis", () -> symbols));
+        sectorAnalysis = new SectorAnalysisServie(analysisDao, null, new SectorRollupIndex(null, null, null, null));
+
+        // HALF_UP to two decimals in BigDecimal; the candidate may differ only on a rounding boundary
+        List<SectorMetricsDto> expected = sectorAnalysis.overallSectorAnalysis();
+        double[] candidate = doublePercentages(invested);
+        for (int i = 0; i < rows; i++) {
+            BenchmarkSupport.assertClose("percentage of " + expected.get(i).getSector(),
+                    expected.get(i).getPercentage(), candidate[i], 0, 0.0100001);
+        }
+    }
+
+    @Benchmark
+    public List<SectorMetricsDto> sectorPercentage() {
+        return sectorAnalysis.overallSectorAnalysis();
+    }
+
+    @Benchmark
+    public List<SymbolMetricsDto> symbolPercentage() {
+        return sectorAnalysis.sectorWiseAnalysis("Sector0");
+    }
+
+    @Benchmark
+    public double[] percentageDouble() {
+        return doublePercentages(invested);
+    }
+
+    static double[] doublePercentages(BigDecimal[] invested) {
+        double total = 0;
+        for (BigDecimal value : invested) {
+            total += value.doubleValue();
+        }
+
+        double[] percentages = new double[invested.length];
+        for (int i = 0; i < invested.length; i++) {
+            percentages[i] = Math.round(invested[i].doubleValue() * 10_000 / total) / 100.0;
+        }
+        return percentages;
+    }
+}
@@ -0,0 +1,118 @@
+package com.pms.analytics.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pms.analytics.dto.OpenPositionAggregateDto;
+import com.pms.analytics.dto.UnrealizedPnlDto;
+import com.pms.analytics.service.PriceSnapshot;
+import com.pms.analytics.service.UnrealizedPnlService;
+
+/**
+ * The per-symbol loop of UnrealizedPnlService.computeUnrealizedPnl for one
+ * portfolio, with every price present in the snapshot so the external price
+ * client is never reached.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UnrealizedPnlBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int positions;
+
+    private UnrealizedPnlService unrealizedPnlService;
+    private UUID portfolioId;
+    private List<OpenPositionAggregateDto> aggregates;
+    private PriceSnapshot snapshot;
+
+    private long[] quantities;
+    private double[] costBases;
+    private double[] prices;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.silenceOutput();
+
+        SplittableRandom random = new SplittableRandom(42);
+        portfolioId = new UUID(random.nextLong(), random.nextLong());
+
+        aggregates = new ArrayList<>(positions);
+        Map<String, BigDecimal> priceMap = new HashMap<>(positions * 2);
+        quantities = new long[positions];
+        costBases = new double[positions];
+        prices = new double[positions];
+
+        for (int i = 0; i < positions; i++) {
+            String symbol = "SYM" + i;
+            long quantity = random.nextLong(1, 50_000);
+            BigDecimal averageCost = BigDecimal.valueOf(random.nextInt(1_000, 100_000), 2);
+            BigDecimal costBasis = averageCost.multiply(BigDecimal.valueOf(quantity));
+            BigDecimal price = BigDecimal.valueOf(random.nextInt(1_000, 100_000), 2);
+
+            aggregates.add(new OpenPositionAggregateDto(portfolioId, symbol, quantity, costBasis));
+            priceMap.put(symbol, price);
+
+            quantities[i] = quantity;
+            costBases[i] = costBasis.doubleValue();
+            prices[i] = price.doubleValue();
+        }
+        snapshot = PriceSnapshot.of(1L, System.currentTimeMillis(), priceMap);
+
+        // computeUnrealizedPnl only reads the snapshot when every price is in it
+        unrealizedPnlService = new UnrealizedPnlService(null, null, null, null);
+
+        UnrealizedPnlDto expected = unrealizedPnlService.computeUnrealizedPnl(portfolioId, aggregates, snapshot);
+        double[] candidate = doubleUnrealized();
+        for (int i = 0; i < positions; i++) {
+            BenchmarkSupport.assertClose("unrealized pnl of SYM" + i,
+                    expected.getSymbol().get("SYM" + i).doubleValue(), candidate[i], 1e-12, 1e-6);
+        }
+        BenchmarkSupport.assertClose("overall unrealized pnl",
+                expected.getOverallUnrealised_Pnl().doubleValue(), candidate[positions], 1e-12, 1e-6);
+    }
+
+    @Benchmark
+    public UnrealizedPnlDto computeUnrealizedPnl() {
+        return unrealizedPnlService.computeUnrealizedPnl(portfolioId, aggregates, snapshot);
+    }
+
+    @Benchmark
+    public double[] computeUnrealizedPnlDouble() {
+        return doubleUnrealized();
+    }
+
+    // Per-symbol unrealized pnl followed by the portfolio total.
+    private double[] doubleUnrealized() {
+        double[] result = new double[positions + 1];
+        double total = 0;
+        for (int i = 0; i < positions; i++) {
+            result[i] = prices[i] * quantities[i] - costBases[i];
+            total += result[i];
+        }
+        result[positions] = total;
+        return result;
+    }
+}
@@ -0,0 +1,190 @@
+package com.pms.analytics.config;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Outbound channel executor that delivers the messages of one session one at a
+ * time, in the order they were sent, from a queue of its own. Replaces the
+ * broker's preservePublishOrder, whose per-session queues cannot be observed,
+ * so the backlog of each session is measurable.
+ *
+ * <p>Because sends to a session never contend, the transport's send-time and
+ * buffer limits would never trigger; they are enforced here instead. A session
+ * whose queue reaches {@code sessionQueueLimit}, or whose current send has been
+ * blocked longer than {@code sendTimeLimitMs}, is closed and its queue dropped.
+ * The pool queue holds at most one drain task per session and is unbounded, so
+ * a sender never runs a session's write itself.
+ */
+@Slf4j
+public class SessionOrderedTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private final int sessionQueueLimit;
+    private final long sendTimeLimitNanos;
+
+    private final Map<String, SessionQueue> sessions = new ConcurrentHashMap<>();
+    private final Map<String, WebSocketSession> openSessions = new ConcurrentHashMap<>();
+
+    public SessionOrderedTaskExecutor(int sessionQueueLimit, long sendTimeLimitMs) {
+        this.sessionQueueLimit = sessionQueueLimit;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+    }
+
+    public void register(WebSocketSession session) {
+        openSessions.put(session.getId(), session);
+    }
+
+    public void unregister(String sessionId) {
+        openSessions.remove(sessionId);
+        SessionQueue queue = sessions.remove(sessionId);
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        String sessionId = task instanceof MessageHandlingRunnable handling
+                ? SimpMessageHeaderAccessor.getSessionId(handling.getMessage().getHeaders())
+                : null;
+        if (sessionId == null) {
+            super.execute(task);
+            return;
+        }
+
+        // Enqueued inside compute so an idle queue is never removed with a task just added to it.
+        boolean[] accepted = {false};
+        SessionQueue queue = sessions.compute(sessionId, (id, current) -> {
+            SessionQueue target = current != null ? current : new SessionQueue();
+            if (target.size.get() < sessionQueueLimit) {
+                target.tasks.add(task);
+                target.size.incrementAndGet();
+                accepted[0] = true;
+            }
+            return target;
+        });
+
+        if (!accepted[0]) {
+            close(sessionId, queue, "its outbound queue reached " + sessionQueueLimit + " messages");
+            return;
+        }
+        long sendStarted = queue.sendStartedNanos;
+        if (sendStarted != 0 && System.nanoTime() - sendStarted > sendTimeLimitNanos) {
+            close(sessionId, queue, "a send has been blocked longer than "
+                    + TimeUnit.NANOSECONDS.toMillis(sendTimeLimitNanos) + " ms");
+            return;
+        }
+        schedule(sessionId, queue);
+    }
+
+    /**
+     * Messages accepted for the session and not yet written to it.
+     */
+    public int backlog(String sessionId) {
+        SessionQueue queue = sessions.get(sessionId);
+        return queue != null ? queue.size.get() : 0;
+    }
+
+    public int totalBacklog() {
+        int total = 0;
+        for (SessionQueue queue : sessions.values()) {
+            total += queue.size.get();
+        }
+        return total;
+    }
+
+    private void schedule(String sessionId, SessionQueue queue) {
+        if (queue.running.compareAndSet(false, true)) {
+            try {
+                super.execute(() -> drainOne(sessionId, queue));
+            } catch (RuntimeException ex) {
+                queue.running.set(false);
+                throw ex;
+            }
+        }
+    }
+
+    // One message per turn, so a busy session cannot hold a pool thread while others wait.
+    private void drainOne(String sessionId, SessionQueue queue) {
+        Runnable task = queue.closed ? null : queue.tasks.poll();
+        long started = System.nanoTime();
+        try {
+            if (task != null) {
+                queue.sendStartedNanos = started;
+                task.run();
+            }
+        } catch (RuntimeException ex) {
+            log.debug("Outbound message for session {} failed: {}", sessionId, ex.getMessage());
+        } finally {
+            queue.sendStartedNanos = 0;
+            if (task != null) {
+                queue.size.decrementAndGet();
+            }
+            queue.running.set(false);
+        }
+
+        if (task != null && System.nanoTime() - started > sendTimeLimitNanos) {
+            close(sessionId, queue, "a send took longer than "
+                    + TimeUnit.NANOSECONDS.toMillis(sendTimeLimitNanos) + " ms");
+            return;
+        }
+
+        sessions.computeIfPresent(sessionId,
+                (id, current) -> current == queue && current.tasks.isEmpty() && !current.running.get() ? null : current);
+        if (!queue.tasks.isEmpty() && !queue.closed) {
+            schedule(sessionId, queue);
+        }
+    }
+
+    private void close(String sessionId, SessionQueue queue, String reason) {
+        sessions.remove(sessionId, queue);
+        if (!queue.clear()) {
+            return;
+        }
+
+        WebSocketSession session = openSessions.remove(sessionId);
+        log.warn("Closing WebSocket session {}: {}", sessionId, reason);
+        if (session == null) {
+            return;
+        }
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException ex) {
+            log.debug("Closing WebSocket session {} failed: {}", sessionId, ex.getMessage());
+        }
+    }
+
+    private static final class SessionQueue {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile long sendStartedNanos;
+        private volatile boolean closed;
+
+        // Drops whatever is still queued; true only for the caller that closed it.
+        private synchronized boolean clear() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            while (tasks.poll() != null) {
+                size.decrementAndGet();
+            }
+            return true;
+        }
+    }
+}
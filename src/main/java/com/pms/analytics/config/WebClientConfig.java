@@ -17,21 +17,59 @@
 
 package com.pms.analytics.config;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
 @Configuration
 public class WebClientConfig {
 
     @Value("${finnhub.api.base-url}")
     private String finnhubBaseUrl;
 
+    @Value("${finnhub.http.max-connections:8}")
+    private int maxConnections;
+
+    @Value("${finnhub.http.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${finnhub.http.response-timeout-ms:3000}")
+    private long responseTimeoutMs;
+
+    @Value("${finnhub.http.pending-acquire-timeout-ms:30000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${finnhub.http.max-idle-ms:30000}")
+    private long maxIdleMs;
+
     @Bean
     public WebClient finnhubClient() {
+        ConnectionProvider pool = ConnectionProvider.builder("finnhub")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleMs))
+                .evictInBackground(Duration.ofMillis(maxIdleMs))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs))
+                .doOnConnected(conn -> conn.addHandlerLast(
+                        new ReadTimeoutHandler(responseTimeoutMs, TimeUnit.MILLISECONDS)));
+
         return WebClient.builder()
                 .baseUrl(finnhubBaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
     }
 }
@@ -1,17 +1,53 @@
 package com.pms.analytics.config;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.*;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Value("${websocket.channels.inbound.core-pool-size:4}")
+    private int inboundCorePoolSize;
+
+    @Value("${websocket.channels.inbound.max-pool-size:8}")
+    private int inboundMaxPoolSize;
+
+    // The pool queue is unbounded, so the outbound pool never grows past its core size.
+    @Value("${websocket.channels.outbound.pool-size:16}")
+    private int outboundPoolSize;
+
+    @Value("${websocket.channels.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    // Sessions that queue more messages than this, or stay blocked on a send
+    // longer than the limit, are closed instead of backing up the outbound channel.
+    @Value("${websocket.channels.outbound.session-queue-limit:1000}")
+    private int outboundSessionQueueLimit;
+
+    @Value("${websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    private SessionOrderedTaskExecutor outboundExecutor;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic");
         config.setApplicationDestinationPrefixes("/app");
+        // Per-portfolio deltas must reach each session in publish order; SessionOrderedTaskExecutor
+        // keeps that order instead of the broker, so each session's backlog stays measurable.
     }
 
     @Override
@@ -19,5 +55,57 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+
+        // Plain WebSocket endpoint; binary frames cannot travel over SockJS.
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*");
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // A full queue makes the receiving transport thread process the message itself.
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+
+        registration.taskExecutor(executor)
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(outboundExecutor())
+                .corePoolSize(outboundPoolSize)
+                .maxPoolSize(outboundPoolSize);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Session limits are enforced by SessionOrderedTaskExecutor, which needs the sessions to close them.
+        registration.setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(handler -> new WebSocketHandlerDecorator(handler) {
+                    @Override
+                    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                        outboundExecutor().register(session);
+                        super.afterConnectionEstablished(session);
+                    }
+
+                    @Override
+                    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+                        try {
+                            super.afterConnectionClosed(session, status);
+                        } finally {
+                            outboundExecutor().unregister(session.getId());
+                        }
+                    }
+                });
+    }
+
+    private synchronized SessionOrderedTaskExecutor outboundExecutor() {
+        if (outboundExecutor == null) {
+            outboundExecutor = new SessionOrderedTaskExecutor(outboundSessionQueueLimit, sendTimeLimitMs);
+        }
+        return outboundExecutor;
     }
 }
@@ -1,18 +1,31 @@
 package com.pms.analytics.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.pms.analytics.dao.entity.AnalysisEntity;
-import com.pms.analytics.dao.entity.PortfolioValueHistoryEntity;
+import com.pms.analytics.dto.AnalysisPageDto;
+import com.pms.analytics.dto.UnrealizedPnlSnapshotDto;
 import com.pms.analytics.service.ApiService;
+import com.pms.analytics.service.DataVersion;
+import com.pms.analytics.service.PortfolioValueSeriesService;
+import com.pms.analytics.service.UnrealizedPnlReadService;
+import com.pms.analytics.service.VersionedResponseCache;
 
 @RestController
 @RequestMapping("/api")
@@ -21,19 +34,123 @@ public class ApiController {
     @Autowired
     ApiService apiService;
 
+    @Autowired
+    VersionedResponseCache responseCache;
+
+    @Autowired
+    PortfolioValueSeriesService seriesService;
+
+    @Autowired
+    UnrealizedPnlReadService unrealizedReads;
+
+    @Value("${api.unrealized.max-bulk-size:500}")
+    private int maxUnrealizedBulkSize;
+
     @GetMapping("/analysis/all")
-    public ResponseEntity<List<AnalysisEntity>> getAllAnalysis(){
-        return ResponseEntity.ok(apiService.getAllAnalysis());
+    public ResponseEntity<List<AnalysisEntity>> getAllAnalysis(WebRequest request){
+        DataVersion.Stamp version = responseCache.version();
+        String etag = responseCache.etag(version);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        // The whole table is too large to hold in the response cache; only the ETag is checked.
+        return ResponseEntity.ok().eTag(etag).body(apiService.getAllAnalysis());
+    }
+
+    @GetMapping(value = "/analysis/all", params = "limit")
+    public ResponseEntity<AnalysisPageDto> getAnalysisPage(
+            @RequestParam(required = false) UUID afterPortfolioId,
+            @RequestParam(required = false) String afterSymbol,
+            @RequestParam int limit,
+            WebRequest request){
+        DataVersion.Stamp version = responseCache.version();
+        String etag = responseCache.etag(version);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        // Each cursor position is its own key; pages are cheap index scans, so only the ETag is checked.
+        return ResponseEntity.ok().eTag(etag).body(apiService.getAnalysisPage(afterPortfolioId, afterSymbol, limit));
+    }
+
+    @GetMapping(value = "/analysis/all", params = "format=ndjson", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllAnalysis(){
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(apiService::streamAllAnalysis);
     }
 
+    @GetMapping("/analysis/{portfolioId}")
+    public ResponseEntity<byte[]> getAnalysisByPortfolio(@PathVariable UUID portfolioId, WebRequest request){
+        DataVersion.Stamp version = responseCache.version();
+        String etag = responseCache.etag(version);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(responseCache.get(
+                "analysis/portfolio", List.of(portfolioId), version,
+                () -> apiService.getAnalysisByPortfolio(portfolioId)));
+    }
+
+    // 202 while the first value for the portfolio is being computed
+    @GetMapping("/unrealized/{portfolioId}")
+    public ResponseEntity<UnrealizedPnlSnapshotDto> getUnrealizedPnl(@PathVariable UUID portfolioId){
+        UnrealizedPnlSnapshotDto snapshot = unrealizedReads.get(portfolioId);
+        return snapshot != null ? ResponseEntity.ok(snapshot) : ResponseEntity.accepted().build();
+    }
+
+    @GetMapping(value = "/unrealized", params = "portfolioIds")
+    public ResponseEntity<List<UnrealizedPnlSnapshotDto>> getUnrealizedPnl(@RequestParam List<UUID> portfolioIds){
+        if (portfolioIds.size() > maxUnrealizedBulkSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(unrealizedReads.getAll(portfolioIds));
+    }
+
+    // Former synchronous recompute-all trigger; now only queues a rate-limited background refresh.
     @GetMapping("/unrealized")
-    public void getUnrealizedPnl(){
-        apiService.getUnrealizedPnl();
+    public ResponseEntity<Void> refreshUnrealizedPnl(){
+        return unrealizedReads.requestFullRefresh()
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+    }
+
+    @GetMapping("/portfolio_value/history/{portfolioId}/series")
+    public ResponseEntity<byte[]> getPortfolioValueSeries(
+            @PathVariable UUID portfolioId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "500") int points,
+            WebRequest request){
+        LocalDate end = to != null ? to : LocalDate.now();
+        if (end.isBefore(from)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        DataVersion.Stamp version = responseCache.version();
+        String etag = responseCache.etag(version);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(responseCache.get(
+                "portfolio_value/series", List.of(portfolioId, from, end, points), version,
+                () -> seriesService.series(portfolioId, from, end, points)));
     }
 
     //put path variable
     @GetMapping("/portfolio_value/history/{portfolioId}")
-    public ResponseEntity<List<PortfolioValueHistoryEntity>> getPortfolioValueHistoryById(@PathVariable UUID portfolioId){
-        return ResponseEntity.ok(apiService.getAllHistoryById(portfolioId));
+    public ResponseEntity<byte[]> getPortfolioValueHistoryById(@PathVariable UUID portfolioId, WebRequest request){
+        DataVersion.Stamp version = responseCache.version();
+        String etag = responseCache.etag(version);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(responseCache.get(
+                "portfolio_value/history", List.of(portfolioId), version,
+                () -> apiService.getAllHistoryById(portfolioId)));
     }
 }
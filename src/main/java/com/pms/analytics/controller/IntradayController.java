@@ -0,0 +1,32 @@
+package com.pms.analytics.controller;
+
+import java.time.Duration;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.pms.analytics.dto.IntradayStatsDto;
+import com.pms.analytics.service.IntradayTickStore;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/intraday")
+@RequiredArgsConstructor
+public class IntradayController {
+
+    private final IntradayTickStore tickStore;
+
+    @GetMapping("/{symbol}")
+    public ResponseEntity<IntradayStatsDto> intradayStats(
+            @PathVariable String symbol,
+            @RequestParam(defaultValue = "390") long windowMinutes) {
+
+        IntradayStatsDto stats = tickStore.stats(symbol, Duration.ofMinutes(windowMinutes).toMillis());
+        return stats != null ? ResponseEntity.ok(stats) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.pms.analytics.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.pms.analytics.dto.ReplayResultDto;
+import com.pms.analytics.service.AnalyticsReplayService;
+
+import lombok.RequiredArgsConstructor;
+
+// Drops and replaces the analytics table, so it is only mapped where replay.endpoint-enabled is set.
+@RestController
+@ConditionalOnProperty(name = "replay.endpoint-enabled", havingValue = "true")
+@RequestMapping("/api/admin/replay")
+@RequiredArgsConstructor
+public class ReplayController {
+
+    private final AnalyticsReplayService replayService;
+
+    @PostMapping
+    public ResponseEntity<ReplayResultDto> rebuildAnalytics() {
+        return ResponseEntity.ok(replayService.rebuild());
+    }
+}
@@ -4,15 +4,18 @@ import java.util.List;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
-import com.pms.analytics.dto.SectorCatalogDto;
-import com.pms.analytics.dto.SectorMetricsDto;
-import com.pms.analytics.dto.SymbolMetricsDto;
+import com.pms.analytics.service.DataVersion;
 import com.pms.analytics.service.SectorAnalysisServie;
+import com.pms.analytics.service.SectorCatalog;
+import com.pms.analytics.service.VersionedResponseCache;
 
 import lombok.RequiredArgsConstructor;
 
@@ -24,32 +27,79 @@ public class SectorAnalysicsController {
     @Autowired
     SectorAnalysisServie sectorAnalysisServie;
 
+    @Autowired
+    VersionedResponseCache responseCache;
+
+    @Autowired
+    SectorCatalog sectorCatalog;
+
     @GetMapping("/overall")
-    public List<SectorMetricsDto> overallSectorAnalysis() {
-        return sectorAnalysisServie.overallSectorAnalysis();
+    public ResponseEntity<byte[]> overallSectorAnalysis(WebRequest request) {
+        DataVersion.Stamp version = responseCache.version();
+        String etag = responseCache.etag(version);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(responseCache.get(
+                "sectors/overall", List.of(), version,
+                () -> sectorAnalysisServie.overallSectorAnalysis()));
     }
 
     @GetMapping("/sector-wise/{sector}")
-    public List<SymbolMetricsDto> sectorWiseAnalysis(@PathVariable String sector) {
-        return sectorAnalysisServie.sectorWiseAnalysis(sector);
+    public ResponseEntity<byte[]> sectorWiseAnalysis(@PathVariable String sector, WebRequest request) {
+        DataVersion.Stamp version = responseCache.version();
+        String etag = responseCache.etag(version);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(responseCache.get(
+                "sectors/sector-wise", List.of(sector), version,
+                () -> sectorAnalysisServie.sectorWiseAnalysis(sector)));
     }
 
     @GetMapping("/portfolio-wise/{portfolioId}")
-    public List<SectorMetricsDto> portfolioSectorAnalysis(
-            @PathVariable UUID portfolioId) {
-        return sectorAnalysisServie.portfolioSectorAnalysis(portfolioId);
+    public ResponseEntity<byte[]> portfolioSectorAnalysis(
+            @PathVariable UUID portfolioId, WebRequest request) {
+        DataVersion.Stamp version = responseCache.version();
+        String etag = responseCache.etag(version);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(responseCache.get(
+                "sectors/portfolio-wise", List.of(portfolioId), version,
+                () -> sectorAnalysisServie.portfolioSectorAnalysis(portfolioId)));
     }
 
     @GetMapping("/portfolio-wise/{portfolioId}/sector-wise/{sector}")
-    public List<SymbolMetricsDto> sectorWisePortfolioAnalysis(
+    public ResponseEntity<byte[]> sectorWisePortfolioAnalysis(
             @PathVariable UUID portfolioId,
-            @PathVariable String sector) {
-        return sectorAnalysisServie.sectorWisePortfolioAnalysis(portfolioId, sector);
+            @PathVariable String sector,
+            WebRequest request) {
+        DataVersion.Stamp version = responseCache.version();
+        String etag = responseCache.etag(version);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(responseCache.get(
+                "sectors/portfolio-sector-wise", List.of(portfolioId, sector), version,
+                () -> sectorAnalysisServie.sectorWisePortfolioAnalysis(portfolioId, sector)));
     }
 
     @GetMapping("/sector-catalog")
-    public List<SectorCatalogDto> sectorCatalog() {
-        return sectorAnalysisServie.sectorCatalog();
+    public ResponseEntity<byte[]> sectorCatalog(WebRequest request) {
+        SectorCatalog.Snapshot catalog = sectorCatalog.current();
+        if (request.checkNotModified(catalog.etag())) {
+            return null;
+        }
+
+        // Serialized once per catalog load.
+        return ResponseEntity.ok()
+                .eTag(catalog.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(catalog.json());
     }
 }
-
@@ -20,6 +20,12 @@ public interface AnalysisDao extends JpaRepository<AnalysisEntity, AnalysisKey>{
     @Query("SELECT DISTINCT a.id.symbol FROM AnalysisEntity a")
     List<String> findAllSymbols();
 
+    @Query("SELECT DISTINCT a.id.portfolioId FROM AnalysisEntity a")
+    List<UUID> findAllPortfolioIds();
+
+    @Query("SELECT a.id FROM AnalysisEntity a WHERE a.holdings > 0")
+    List<AnalysisKey> findAllHeldKeys();
+
     @Query("""
         SELECT new com.pms.analytics.dto.SectorMetricsDto(
             s.sectorName,
@@ -0,0 +1,84 @@
+package com.pms.analytics.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.pms.analytics.dao.entity.AnalysisEntity;
+import com.pms.analytics.dao.entity.AnalysisEntity.AnalysisKey;
+
+import lombok.RequiredArgsConstructor;
+
+@Repository
+@RequiredArgsConstructor
+public class AnalysisJdbcDao {
+
+    public static final RowMapper<AnalysisEntity> ROW_MAPPER = AnalysisJdbcDao::mapRow;
+
+    private static final String COLUMNS =
+            "portfolio_id, symbol, holdings, total_invested, realized_pnl, created_at, updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * One page in primary-key order, starting after the given key (from the
+     * beginning when it is null). Served by the primary key index at any depth.
+     */
+    public List<AnalysisEntity> findPage(UUID afterPortfolioId, String afterSymbol, int limit) {
+        if (afterPortfolioId == null) {
+            return jdbcTemplate.query(
+                    "SELECT " + COLUMNS + " FROM analytics ORDER BY portfolio_id, symbol LIMIT ?",
+                    ROW_MAPPER, limit);
+        }
+
+        return jdbcTemplate.query("""
+                SELECT %s FROM analytics
+                WHERE (portfolio_id, symbol) > (?, ?)
+                ORDER BY portfolio_id, symbol
+                LIMIT ?
+                """.formatted(COLUMNS),
+                ROW_MAPPER, afterPortfolioId, afterSymbol != null ? afterSymbol : "", limit);
+    }
+
+    /**
+     * Positions written at or after the given time, by any instance.
+     */
+    public List<AnalysisEntity> findUpdatedSince(LocalDateTime since) {
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM analytics WHERE updated_at >= ?", ROW_MAPPER, since);
+    }
+
+    public void ensureUpdatedAtIndex() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS analytics_updated_at_idx ON analytics (updated_at)");
+    }
+
+    /**
+     * Must be called inside a transaction so the driver streams with the fetch size.
+     */
+    public void streamAll(int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT " + COLUMNS + " FROM analytics ORDER BY portfolio_id, symbol");
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+
+    public static AnalysisEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new AnalysisEntity(
+                new AnalysisKey(rs.getObject("portfolio_id", UUID.class), rs.getString("symbol")),
+                rs.getLong("holdings"),
+                rs.getBigDecimal("total_invested"),
+                rs.getBigDecimal("realized_pnl"),
+                rs.getObject("created_at", LocalDateTime.class),
+                rs.getObject("updated_at", LocalDateTime.class));
+    }
+}
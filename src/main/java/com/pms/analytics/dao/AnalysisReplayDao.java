@@ -0,0 +1,208 @@
+package com.pms.analytics.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pms.analytics.dao.entity.AnalysisEntity;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Bulk SQL used to rebuild the analytics table from pms_core_trades: a
+ * fetch-size cursor over the trades' transactions, a COPY-loaded staging table
+ * and an atomic rename swap. An advisory lock fences live ingestion out for the
+ * whole rebuild: ingest transactions take it shared, a replay exclusively.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AnalysisReplayDao {
+
+    private static final String STAGING_TABLE = "analytics_replay_staging";
+    private static final String RETIRED_TABLE = "analytics_replay_retired";
+    private static final String REPLAY_LOCK = "hashtext('ANALYTICS_REPLAY')";
+    private static final String INGEST_FENCE = "hashtext('ANALYTICS_INGEST_FENCE')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    /**
+     * Called at the start of every ingest transaction; waits while a replay holds
+     * the fence, so no position commits between the replay's cursor and its swap.
+     */
+    public void enterIngestion() {
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock_shared(" + INGEST_FENCE + ")::text", String.class);
+    }
+
+    /**
+     * Takes the cluster-wide replay lock on a connection of its own and holds it
+     * until closed. Returns null when another instance is already replaying,
+     * leaving its staging table alone.
+     */
+    public ReplayLock tryLockForReplay() {
+        Connection con = null;
+        try {
+            con = dataSource.getConnection();
+            try (Statement statement = con.createStatement();
+                    ResultSet rs = statement.executeQuery("SELECT pg_try_advisory_lock(" + REPLAY_LOCK + ")")) {
+                if (!rs.next() || !rs.getBoolean(1)) {
+                    closeQuietly(con);
+                    return null;
+                }
+            }
+            return new ReplayLock(con);
+        } catch (SQLException ex) {
+            closeQuietly(con);
+            throw new IllegalStateException("Could not take the replay lock", ex);
+        }
+    }
+
+    /**
+     * One row per transaction, with the buy price recorded on it, in trade order.
+     * Must be called inside a transaction so the driver streams with the fetch
+     * size instead of materialising the whole trade history.
+     */
+    public void streamTransactionsInOrder(int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                SELECT t.portfolio_id, t.symbol, t.side, t.price_per_stock, tx.buy_price, tx.quantity
+                FROM pms_core_trades t
+                JOIN pms_core_transactions tx ON tx.trade_id = t.trade_id
+                ORDER BY t.timestamp, t.trade_id, tx.transaction_id
+            """);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+
+    public void createStagingTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + STAGING_TABLE);
+        jdbcTemplate.execute("CREATE TABLE " + STAGING_TABLE + " (LIKE analytics INCLUDING ALL)");
+    }
+
+    /**
+     * Loads the positions into the staging table through the COPY protocol.
+     */
+    @Transactional
+    public long copyIntoStaging(Collection<AnalysisEntity> positions) {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyIn copyIn = con.unwrap(PGConnection.class).getCopyAPI().copyIn("""
+                COPY %s (portfolio_id, symbol, holdings, total_invested, realized_pnl, created_at, updated_at)
+                FROM STDIN WITH (FORMAT csv)
+            """.formatted(STAGING_TABLE));
+
+            String loadedAt = LocalDateTime.now().toString();
+            try {
+                StringBuilder buffer = new StringBuilder(64 * 1024);
+                for (AnalysisEntity position : positions) {
+                    buffer.append(position.getId().getPortfolioId()).append(',')
+                            .append(csv(position.getId().getSymbol())).append(',')
+                            .append(position.getHoldings()).append(',')
+                            .append(position.getTotalInvested().toPlainString()).append(',')
+                            .append(position.getRealizedPnl().toPlainString()).append(',')
+                            .append(loadedAt).append(',')
+                            .append(loadedAt).append('\n');
+
+                    if (buffer.length() >= 60 * 1024) {
+                        write(copyIn, buffer);
+                    }
+                }
+                write(copyIn, buffer);
+                return copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("COPY into " + STAGING_TABLE + " failed", ex);
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    /**
+     * Replaces analytics with the staging table in one transaction; readers block
+     * briefly on the exclusive lock and then see the rebuilt table.
+     */
+    @Transactional
+    public void swapStagingIn() {
+        jdbcTemplate.execute("LOCK TABLE analytics IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("ALTER TABLE analytics RENAME TO " + RETIRED_TABLE);
+        jdbcTemplate.execute("ALTER TABLE " + STAGING_TABLE + " RENAME TO analytics");
+        jdbcTemplate.execute("DROP TABLE " + RETIRED_TABLE);
+    }
+
+    private static void closeQuietly(Connection con) {
+        if (con == null) {
+            return;
+        }
+        try {
+            con.close();
+        } catch (SQLException ignored) {
+            // the connection is being discarded anyway
+        }
+    }
+
+    /**
+     * Session-level advisory locks held for a replay; closing releases them before
+     * the connection goes back to the pool.
+     */
+    public static final class ReplayLock implements AutoCloseable {
+
+        private final Connection con;
+
+        private ReplayLock(Connection con) {
+            this.con = con;
+        }
+
+        /**
+         * Takes the fence exclusively once the ingest transactions in flight have
+         * committed; it is held with the replay lock until close.
+         */
+        public void fenceIngestion() {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("SELECT pg_advisory_lock(" + INGEST_FENCE + ")");
+            } catch (SQLException ex) {
+                throw new IllegalStateException("Could not fence ingestion for the replay", ex);
+            }
+        }
+
+        @Override
+        public void close() {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("SELECT pg_advisory_unlock_all()");
+            } catch (SQLException ex) {
+                throw new IllegalStateException("Could not release the replay locks", ex);
+            } finally {
+                closeQuietly(con);
+            }
+        }
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    private static String csv(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -23,6 +23,18 @@ public class PortfolioUnrealizedPnlStatusDao {
         return count != null && count > 0;
     }
 
+    // Shorter window used for portfolios with live viewers.
+    public boolean computedWithin(UUID portfolioId, long intervalMs) {
+        Integer count = jdbcTemplate.queryForObject("""
+            SELECT COUNT(*)
+            FROM analytics_portfolio_unrealizedpnl_status
+            WHERE portfolio_id = ?
+              AND last_computed_at > now() - (? * interval '1 millisecond')
+        """, Integer.class, portfolioId, intervalMs);
+
+        return count != null && count > 0;
+    }
+
     public boolean tryAdvisoryLock(UUID portfolioId) {
         return Boolean.TRUE.equals(
                 jdbcTemplate.queryForObject(
@@ -0,0 +1,177 @@
+package com.pms.analytics.dao;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * DDL for the monthly range partitions of analytics_portfolio_value_history.
+ * Partitions are named {@code analytics_portfolio_value_history_yYYYYmMM}; rows
+ * outside every month land in {@code analytics_portfolio_value_history_default}.
+ * Callers hold {@link #lockDdl} for the transaction so instances starting
+ * together do not run the same DDL concurrently.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PortfolioValueHistoryPartitionDao {
+
+    public static final String TABLE = "analytics_portfolio_value_history";
+    private static final String LEGACY_TABLE = TABLE + "_legacy";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Held until the surrounding transaction ends.
+    public void lockDdl() {
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(hashtext('PORTFOLIO_VALUE_HISTORY_DDL'))::text",
+                String.class);
+    }
+
+    public boolean isPartitioned() {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", String.class, TABLE);
+        return !kinds.isEmpty() && "p".equals(kinds.get(0));
+    }
+
+    public boolean exists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, TABLE));
+    }
+
+    /**
+     * Replaces the plain heap table with a partitioned one holding the same rows.
+     * Runs in one transaction so readers see either the old or the new table, and
+     * fails, leaving the old table in place, if any row would not be copied.
+     */
+    @Transactional
+    public void migrateToPartitioned(YearMonth lastMonth) {
+        Long undated = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + TABLE + " WHERE date IS NULL", Long.class);
+        if (undated != null && undated > 0) {
+            throw new IllegalStateException(undated + " rows of " + TABLE
+                    + " have no date and cannot be partitioned; fix them before migrating.");
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_TABLE);
+        jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " DROP CONSTRAINT IF EXISTS " + TABLE + "_pkey");
+        createPartitionedTable();
+
+        Optional<LocalDate> first = Optional.ofNullable(
+                jdbcTemplate.queryForObject("SELECT min(date) FROM " + LEGACY_TABLE, LocalDate.class));
+        YearMonth month = first.map(YearMonth::from).orElse(lastMonth);
+        for (; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+            createPartition(month);
+        }
+
+        int copied = jdbcTemplate.update("""
+            INSERT INTO %s (id, portfolio_id, date, portfolio_value, created_at, updated_at)
+            SELECT id, portfolio_id, date, portfolio_value, created_at, updated_at
+            FROM %s
+        """.formatted(TABLE, LEGACY_TABLE));
+        Long legacyRows = jdbcTemplate.queryForObject("SELECT count(*) FROM " + LEGACY_TABLE, Long.class);
+        if (legacyRows == null || legacyRows != copied) {
+            throw new IllegalStateException("Copied " + copied + " of " + legacyRows + " rows of " + TABLE
+                    + "; migration rolled back.");
+        }
+        jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+    }
+
+    public void createPartitionedTable() {
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS %s (
+                id UUID NOT NULL,
+                portfolio_id UUID,
+                date DATE NOT NULL,
+                portfolio_value NUMERIC(38, 2),
+                created_at TIMESTAMP NOT NULL,
+                updated_at TIMESTAMP NOT NULL,
+                PRIMARY KEY (id, date)
+            ) PARTITION BY RANGE (date)
+        """.formatted(TABLE));
+        createDefaultPartition();
+    }
+
+    public void createDefaultPartition() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS %s PARTITION OF %s DEFAULT"
+                .formatted(DEFAULT_PARTITION, TABLE));
+    }
+
+    /**
+     * Creates the month's partition. Rows of that month already in the default
+     * partition would block a plain CREATE ... PARTITION OF, so the partition is
+     * built standalone, takes those rows over, and is then attached.
+     */
+    public void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition))) {
+            return;
+        }
+
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+
+        jdbcTemplate.execute("CREATE TABLE %s (LIKE %s INCLUDING DEFAULTS INCLUDING CONSTRAINTS)"
+                .formatted(partition, TABLE));
+        jdbcTemplate.execute("""
+            WITH moved AS (
+                DELETE FROM %s WHERE date >= '%s' AND date < '%s' RETURNING *
+            )
+            INSERT INTO %s SELECT * FROM moved
+        """.formatted(DEFAULT_PARTITION, from, to, partition));
+        jdbcTemplate.execute("ALTER TABLE %s ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')"
+                .formatted(TABLE, partition, from, to));
+    }
+
+    public long countDefaultRows() {
+        Long rows = jdbcTemplate.queryForObject("SELECT count(*) FROM " + DEFAULT_PARTITION, Long.class);
+        return rows != null ? rows : 0L;
+    }
+
+    public List<YearMonth> listPartitions() {
+        return jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = to_regclass(?)
+                """, String.class, TABLE).stream()
+                .filter(name -> name.matches(TABLE + "_y\\d{4}m\\d{2}"))
+                .map(name -> YearMonth.of(
+                        Integer.parseInt(name.substring(TABLE.length() + 2, TABLE.length() + 6)),
+                        Integer.parseInt(name.substring(TABLE.length() + 7))))
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Recent partitions serve the per-portfolio "last N days" lookups, so they get
+     * a covering b-tree that answers them with index-only scans.
+     */
+    public void indexAsRecent(YearMonth month) {
+        String partition = partitionName(month);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS %s_pid_date_idx ON %s (portfolio_id, date DESC) INCLUDE (portfolio_value)"
+                .formatted(partition, partition));
+    }
+
+    /**
+     * Old partitions are append-only and physically ordered by date; a BRIN index
+     * is a few pages instead of a b-tree the size of the data.
+     */
+    public void indexAsArchived(YearMonth month) {
+        String partition = partitionName(month);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS %s_date_brin ON %s USING brin (date, portfolio_id)"
+                .formatted(partition, partition));
+        jdbcTemplate.execute("DROP INDEX IF EXISTS %s_pid_date_idx".formatted(partition));
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "%s_y%04dm%02d".formatted(TABLE, month.getYear(), month.getMonthValue());
+    }
+}
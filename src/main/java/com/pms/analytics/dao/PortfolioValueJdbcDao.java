@@ -0,0 +1,64 @@
+package com.pms.analytics.dao;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+@Repository
+@RequiredArgsConstructor
+public class PortfolioValueJdbcDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Streams every position of the portfolios not valued in the last 23 hours,
+     * ordered by portfolio. Must run inside a transaction so the driver honours
+     * the fetch size instead of buffering the whole result.
+     */
+    public void streamPositionsDueForValuation(int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                SELECT a.portfolio_id, a.symbol, a.holdings
+                FROM analytics a
+                LEFT JOIN analytics_portfolio_value_status s ON s.portfolio_id = a.portfolio_id
+                WHERE s.last_computed_at IS NULL
+                   OR s.last_computed_at <= now() - interval '23 hours'
+                ORDER BY a.portfolio_id
+            """);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+
+    public void findDailyValues(UUID portfolioId, LocalDate from, LocalDate to, RowCallbackHandler handler) {
+        jdbcTemplate.query("""
+            SELECT date, portfolio_value AS value
+            FROM analytics_portfolio_value_history
+            WHERE portfolio_id = ?
+              AND date BETWEEN ? AND ?
+            ORDER BY date
+        """, handler, portfolioId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    public void insertHistory(LocalDate date, Map<UUID, BigDecimal> values) {
+        List<Object[]> rows = values.entrySet().stream()
+                .map(e -> new Object[]{UUID.randomUUID(), e.getKey(), Date.valueOf(date), e.getValue()})
+                .toList();
+
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO analytics_portfolio_value_history
+                (id, portfolio_id, date, portfolio_value, created_at, updated_at)
+            VALUES (?, ?, ?, ?, now(), now())
+        """, rows);
+    }
+}
@@ -0,0 +1,101 @@
+package com.pms.analytics.dao;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Weekly and monthly downsampled tiers of the daily portfolio value history,
+ * used for long-range charts.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PortfolioValueRollupDao {
+
+    public enum Tier {
+        WEEK("week"),
+        MONTH("month");
+
+        private final String truncUnit;
+
+        Tier(String truncUnit) {
+            this.truncUnit = truncUnit;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createTable() {
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS analytics_portfolio_value_rollup (
+                portfolio_id UUID NOT NULL,
+                tier VARCHAR(8) NOT NULL,
+                bucket_start DATE NOT NULL,
+                open_value NUMERIC(38, 2),
+                close_value NUMERIC(38, 2),
+                min_value NUMERIC(38, 2),
+                max_value NUMERIC(38, 2),
+                avg_value NUMERIC(38, 2),
+                samples INT NOT NULL,
+                PRIMARY KEY (portfolio_id, tier, bucket_start)
+            )
+        """);
+    }
+
+    /**
+     * Closing value of each bucket overlapping [from, to], as (date, value) rows.
+     */
+    public void findCloseValues(UUID portfolioId, Tier tier, LocalDate from, LocalDate to, RowCallbackHandler handler) {
+        jdbcTemplate.query("""
+            SELECT bucket_start AS date, close_value AS value
+            FROM analytics_portfolio_value_rollup
+            WHERE portfolio_id = ?
+              AND tier = ?
+              AND bucket_start BETWEEN date_trunc('%s', ?::date)::date AND ?
+            ORDER BY bucket_start
+        """.formatted(tier.truncUnit), handler, portfolioId, tier.name(), Date.valueOf(from), Date.valueOf(to));
+    }
+
+    public LocalDate lastBucketStart(Tier tier) {
+        return jdbcTemplate.queryForObject(
+                "SELECT max(bucket_start) FROM analytics_portfolio_value_rollup WHERE tier = ?",
+                LocalDate.class, tier.name());
+    }
+
+    /**
+     * Recomputes every bucket of the tier starting at or after {@code fromBucket}
+     * (all buckets when null) from the daily history.
+     */
+    public int refresh(Tier tier, LocalDate fromBucket) {
+        return jdbcTemplate.update("""
+            INSERT INTO analytics_portfolio_value_rollup
+                (portfolio_id, tier, bucket_start, open_value, close_value, min_value, max_value, avg_value, samples)
+            SELECT portfolio_id,
+                   ?,
+                   date_trunc('%1$s', date)::date AS bucket_start,
+                   (array_agg(portfolio_value ORDER BY date))[1],
+                   (array_agg(portfolio_value ORDER BY date DESC))[1],
+                   min(portfolio_value),
+                   max(portfolio_value),
+                   round(avg(portfolio_value), 2),
+                   count(*)
+            FROM analytics_portfolio_value_history
+            WHERE portfolio_id IS NOT NULL
+              AND date >= COALESCE(?::date, '-infinity'::date)
+            GROUP BY portfolio_id, date_trunc('%1$s', date)
+            ON CONFLICT (portfolio_id, tier, bucket_start) DO UPDATE SET
+                open_value = EXCLUDED.open_value,
+                close_value = EXCLUDED.close_value,
+                min_value = EXCLUDED.min_value,
+                max_value = EXCLUDED.max_value,
+                avg_value = EXCLUDED.avg_value,
+                samples = EXCLUDED.samples
+        """.formatted(tier.truncUnit), tier.name(), fromBucket);
+    }
+}
@@ -1,5 +1,10 @@
 package com.pms.analytics.dao;
 
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -42,4 +47,55 @@ public class PortfolioValueStatusDao {
             DO UPDATE SET last_computed_at = now()
         """, portfolioId);
     }
+
+    /**
+     * Set-based variant of {@link #tryAdvisoryLock}: returns the portfolios whose
+     * transaction-scoped lock was obtained, in a single round trip.
+     */
+    public Set<UUID> tryAdvisoryLocks(Collection<UUID> portfolioIds) {
+        if (portfolioIds.isEmpty()) {
+            return Set.of();
+        }
+
+        List<UUID> locked = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                SELECT id
+                FROM unnest(?::uuid[]) AS id
+                WHERE pg_try_advisory_xact_lock(hashtext('PORTFOLIO_VALUE:' || id::text))
+            """);
+            ps.setArray(1, con.createArrayOf("uuid", portfolioIds.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getObject(1, UUID.class));
+
+        return new HashSet<>(locked);
+    }
+
+    // Set-based variant of computedRecently, in a single round trip.
+    public Set<UUID> computedRecently(Collection<UUID> portfolioIds) {
+        if (portfolioIds.isEmpty()) {
+            return Set.of();
+        }
+
+        List<UUID> recent = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                SELECT portfolio_id
+                FROM analytics_portfolio_value_status
+                WHERE portfolio_id = ANY(?::uuid[])
+                  AND last_computed_at > now() - interval '23 hours'
+            """);
+            ps.setArray(1, con.createArrayOf("uuid", portfolioIds.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getObject(1, UUID.class));
+
+        return new HashSet<>(recent);
+    }
+
+    public void updateLastComputed(Collection<UUID> portfolioIds) {
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO analytics_portfolio_value_status (portfolio_id, last_computed_at)
+            VALUES (?, now())
+            ON CONFLICT (portfolio_id)
+            DO UPDATE SET last_computed_at = now()
+        """, portfolioIds.stream().map(id -> new Object[]{id}).toList());
+    }
 }
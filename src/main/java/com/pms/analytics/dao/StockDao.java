@@ -1,8 +1,11 @@
 package com.pms.analytics.dao;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.pms.analytics.dao.entity.StockEntity;
+import com.pms.analytics.dto.CatalogVersionDto;
+
 import java.util.List;
 
 
@@ -10,4 +13,13 @@ public interface StockDao extends JpaRepository<StockEntity, Long>{
     List<StockEntity> findBySectorName(String sectorName);
 
     List<StockEntity> findAll();
+
+    @Query("""
+        SELECT new com.pms.analytics.dto.CatalogVersionDto(
+            COUNT(s),
+            MAX(s.updatedAt)
+        )
+        FROM StockEntity s
+    """)
+    CatalogVersionDto catalogVersion();
 }
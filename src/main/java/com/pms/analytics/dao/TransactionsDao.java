@@ -1,11 +1,20 @@
 package com.pms.analytics.dao;
 
 import com.pms.analytics.dao.entity.TransactionsEntity;
+import com.pms.analytics.dto.OpenPositionAggregateDto;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import jakarta.persistence.QueryHint;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface TransactionsDao extends JpaRepository<TransactionsEntity, UUID> {
 
@@ -18,4 +27,58 @@ public interface TransactionsDao extends JpaRepository<TransactionsEntity, UUID>
     @Query("SELECT DISTINCT t.trade.symbol FROM TransactionsEntity t WHERE t.trade.side = com.pms.analytics.utilities.TradeSide.BUY AND t.quantity > 0")
     List<String> findAllActiveSymbols();
 
+    @Query("""
+        SELECT new com.pms.analytics.dto.OpenPositionAggregateDto(
+            tr.portfolioId,
+            tr.symbol,
+            SUM(t.quantity),
+            SUM(t.quantity * t.buyPrice)
+        )
+        FROM TransactionsEntity t
+        JOIN t.trade tr
+        WHERE tr.portfolioId = :portfolioId
+          AND tr.side = com.pms.analytics.utilities.TradeSide.BUY
+          AND t.quantity > 0
+        GROUP BY tr.portfolioId, tr.symbol
+    """)
+    List<OpenPositionAggregateDto> findOpenPositionAggregatesByPortfolioId(UUID portfolioId);
+
+    @Query("""
+        SELECT new com.pms.analytics.dto.OpenPositionAggregateDto(
+            tr.portfolioId,
+            tr.symbol,
+            SUM(t.quantity),
+            SUM(t.quantity * t.buyPrice)
+        )
+        FROM TransactionsEntity t
+        JOIN t.trade tr
+        WHERE tr.side = com.pms.analytics.utilities.TradeSide.BUY
+          AND t.quantity > 0
+        GROUP BY tr.portfolioId, tr.symbol
+        ORDER BY tr.portfolioId, tr.symbol
+    """)
+    List<OpenPositionAggregateDto> findAllOpenPositionAggregates();
+
+    // Same projection as findAllOpenPositionAggregates, read through a cursor.
+    // Must be consumed inside a transaction and closed by the caller.
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT new com.pms.analytics.dto.OpenPositionAggregateDto(
+            tr.portfolioId,
+            tr.symbol,
+            SUM(t.quantity),
+            SUM(t.quantity * t.buyPrice)
+        )
+        FROM TransactionsEntity t
+        JOIN t.trade tr
+        WHERE tr.side = com.pms.analytics.utilities.TradeSide.BUY
+          AND t.quantity > 0
+        GROUP BY tr.portfolioId, tr.symbol
+        ORDER BY tr.portfolioId, tr.symbol
+    """)
+    Stream<OpenPositionAggregateDto> streamAllOpenPositionAggregates();
+
 }
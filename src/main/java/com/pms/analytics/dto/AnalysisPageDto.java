@@ -0,0 +1,20 @@
+package com.pms.analytics.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.pms.analytics.dao.entity.AnalysisEntity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnalysisPageDto {
+    private List<AnalysisEntity> items;
+    // Keyset cursor for the next page; null on the last page.
+    private UUID nextAfterPortfolioId;
+    private String nextAfterSymbol;
+}
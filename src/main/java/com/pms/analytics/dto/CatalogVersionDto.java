@@ -0,0 +1,15 @@
+package com.pms.analytics.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogVersionDto {
+    private Long stockCount;
+    private LocalDateTime lastUpdatedAt;
+}
@@ -0,0 +1,22 @@
+package com.pms.analytics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IntradayStatsDto {
+    private String symbol;
+    private long windowStartMs;
+    private long windowEndMs;
+    private int ticks;
+    private double open;
+    private double last;
+    private double high;
+    private double low;
+    private double intradayReturn;     // last / open - 1
+    private double realizedVolatility; // sqrt of the sum of squared log returns
+    private double timeWeightedAverage;
+}
@@ -0,0 +1,18 @@
+package com.pms.analytics.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OpenPositionAggregateDto {
+    private UUID portfolioId;
+    private String symbol;
+    private Long quantity;      // SUM(quantity) over open lots
+    private BigDecimal costBasis; // SUM(quantity * buy_price) over open lots
+}
@@ -0,0 +1,20 @@
+package com.pms.analytics.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Columnar chart payload: dates[i] pairs with values[i].
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PortfolioValueSeriesDto {
+    private UUID portfolioId;
+    private String resolution;
+    private List<LocalDate> dates;
+    private double[] values;
+}
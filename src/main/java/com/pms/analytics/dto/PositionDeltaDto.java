@@ -0,0 +1,21 @@
+package com.pms.analytics.dto;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Only the fields that changed since the previous update are set.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PositionDeltaDto {
+    private String symbol;
+    private Long holdings;
+    private BigDecimal totalInvested;
+    private BigDecimal realizedPnl;
+}
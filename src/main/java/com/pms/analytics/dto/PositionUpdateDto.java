@@ -0,0 +1,15 @@
+package com.pms.analytics.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PositionUpdateDto {
+    private String portfolioId;
+    private List<PositionDeltaDto> positions;
+}
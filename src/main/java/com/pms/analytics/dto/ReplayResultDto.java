@@ -0,0 +1,16 @@
+package com.pms.analytics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplayResultDto {
+    private long trades;
+    private long skippedTrades;
+    private long positions;
+    private long elapsedMs;
+    private double tradesPerSecond;
+}
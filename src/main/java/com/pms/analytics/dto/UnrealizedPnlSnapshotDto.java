@@ -0,0 +1,15 @@
+package com.pms.analytics.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnrealizedPnlSnapshotDto {
+    private UnrealizedPnlDto unrealizedPnl;
+    private Instant computedAt;
+}
@@ -0,0 +1,8 @@
+package com.pms.analytics.event;
+
+import java.util.List;
+
+import com.pms.analytics.dao.entity.AnalysisEntity;
+
+// Published inside the ingest transaction; listeners bind to the commit phase.
+public record PositionsCommittedEvent(List<AnalysisEntity> positions) {}
@@ -0,0 +1,4 @@
+package com.pms.analytics.event;
+
+// Published when the shared data version moved because of writes made by another instance.
+public record RemoteDataChangedEvent(long sharedVersion) {}
@@ -0,0 +1,6 @@
+package com.pms.analytics.event;
+
+import com.pms.analytics.service.SectorCatalog;
+
+// Published after a reload found pms_stocks changed.
+public record SectorCatalogChangedEvent(SectorCatalog.Snapshot catalog) {}
@@ -1,26 +1,137 @@
 package com.pms.analytics.externalRedis;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import com.pms.analytics.dto.FinnhubQuoteResponseDTO;
+import com.pms.analytics.utilities.TokenBucket;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class ExternalPriceClient {
 
     private final WebClient finnhubClient;
 
+    // Shared across instances; the local bucket is only used while Redis cannot be reached.
+    private final RedisRateLimiter sharedRateLimiter;
+
     @Value("${finnhub.api.key}")
     private String externalApiKey;
 
+    @Value("${finnhub.rate-limit.per-minute:60}")
+    private int permitsPerMinute;
+
+    @Value("${finnhub.rate-limit.burst:30}")
+    private int burst;
+
+    @Value("${finnhub.http.max-connections:8}")
+    private int maxConcurrency;
+
+    @Value("${finnhub.refresh.timeout-ms:20000}")
+    private long refreshTimeoutMs;
+
+    // One in-flight request per symbol; concurrent callers share it.
+    private final Map<String, Mono<BigDecimal>> inFlight = new ConcurrentHashMap<>();
+
+    // When each symbol last got a price, so symbols skipped by the rate limit go first next time.
+    private final Map<String, Long> lastFetchedNanos = new ConcurrentHashMap<>();
+
+    private TokenBucket rateLimiter;
+
+    @PostConstruct
+    void init() {
+        rateLimiter = new TokenBucket(permitsPerMinute, burst);
+    }
+
     public Mono<BigDecimal> fetchPriceAsync(String symbol) {
+        return fetchPriceAsync(symbol, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(refreshTimeoutMs));
+    }
+
+    /**
+     * Fetches all symbols with bounded concurrency and completes once every fetch
+     * has finished, failed, or the refresh timeout has passed. The map holds the
+     * prices that landed; failed symbols, and symbols the rate limit cannot admit
+     * before the timeout, are left out. Symbols are tried least recently fetched
+     * first, so a quota smaller than the symbol list rotates through all of them.
+     */
+    public Mono<Map<String, BigDecimal>> refreshPrices(Collection<String> symbols) {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(refreshTimeoutMs);
+
+        return Flux.fromStream(symbols.stream()
+                        .distinct()
+                        .sorted(Comparator.comparingLong(symbol -> lastFetchedNanos.getOrDefault(symbol, 0L))))
+                .flatMap(symbol -> fetchPriceAsync(symbol, deadlineNanos)
+                        .map(price -> Map.entry(symbol, price))
+                        .onErrorResume(ex -> {
+                            log.warn("Failed fetching price for {}: {}", symbol, ex.getMessage());
+                            return Mono.empty();
+                        }), maxConcurrency)
+                .take(Duration.ofMillis(refreshTimeoutMs))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    private Mono<BigDecimal> fetchPriceAsync(String symbol, long deadlineNanos) {
+        return inFlight.computeIfAbsent(symbol, s -> rateLimited(s, deadlineNanos)
+                .doOnNext(price -> lastFetchedNanos.put(s, System.nanoTime()))
+                // Cancelled once its last caller gives up, returning a reserved token and freeing the
+                // symbol for the next cycle; a cached fetch stayed parked here past the timeout.
+                .doOnTerminate(() -> inFlight.remove(s))
+                .doOnCancel(() -> inFlight.remove(s))
+                .share());
+    }
+
+    // Completes empty when no token can be had before the deadline; a cancelled wait returns its token.
+    private Mono<BigDecimal> rateLimited(String symbol, long deadlineNanos) {
+        return Mono.defer(() -> {
+            long maxWaitNanos = deadlineNanos - System.nanoTime();
+            boolean shared = sharedRateLimiter != null;
+            long waitNanos;
+            try {
+                waitNanos = shared
+                        ? sharedRateLimiter.tryReserve(permitsPerMinute, burst, maxWaitNanos)
+                        : rateLimiter.tryReserve(maxWaitNanos);
+            } catch (RuntimeException ex) {
+                log.debug("Shared rate limit unavailable, using the local one: {}", ex.getMessage());
+                shared = false;
+                waitNanos = rateLimiter.tryReserve(maxWaitNanos);
+            }
+
+            if (waitNanos < 0) {
+                log.debug("Rate limit reached, skipping price fetch for {} this cycle.", symbol);
+                return Mono.empty();
+            }
+            Runnable release = shared ? this::releaseShared : rateLimiter::release;
+            return waitNanos > 0
+                    ? Mono.delay(Duration.ofNanos(waitNanos)).doOnCancel(release).then(quote(symbol))
+                    : quote(symbol);
+        });
+    }
+
+    private void releaseShared() {
+        try {
+            sharedRateLimiter.release(burst);
+        } catch (RuntimeException ex) {
+            log.debug("Could not return a shared rate limit token: {}", ex.getMessage());
+        }
+    }
+
+    private Mono<BigDecimal> quote(String symbol) {
         return finnhubClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/quote")
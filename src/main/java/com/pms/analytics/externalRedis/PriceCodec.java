@@ -0,0 +1,105 @@
+package com.pms.analytics.externalRedis;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+/**
+ * Binary encoding for values of the price hash:
+ * header byte, zig-zag varint unscaled value, scale byte, varint epoch millis.
+ * A typical quote takes around 12 bytes. Binary values live under their own
+ * key; the shared price hash keeps the Jackson JSON other services read, which
+ * {@link #encodeLegacy} writes and {@link #decode} still accepts.
+ */
+public final class PriceCodec {
+
+    // Never the first byte of a UTF-8 JSON document
+    private static final byte HEADER_V1 = (byte) 0xB1;
+
+    private static final GenericJackson2JsonRedisSerializer LEGACY = new GenericJackson2JsonRedisSerializer();
+
+    private PriceCodec() {}
+
+    public record DecodedPrice(BigDecimal price, long timestampMs) {}
+
+    public static byte[] encode(BigDecimal price, long timestampMs) {
+        BigDecimal normalized = price.stripTrailingZeros();
+        if (normalized.scale() < 0) {
+            normalized = normalized.setScale(0);
+        }
+
+        BigInteger unscaled = normalized.unscaledValue();
+        if (unscaled.bitLength() > 63 || normalized.scale() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Price out of codec range: " + price);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+        out.write(HEADER_V1);
+        writeVarLong(out, zigZag(unscaled.longValue()));
+        out.write(normalized.scale());
+        writeVarLong(out, timestampMs);
+        return out.toByteArray();
+    }
+
+    public static byte[] encodeLegacy(BigDecimal price) {
+        return LEGACY.serialize(price);
+    }
+
+    public static DecodedPrice decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        if (bytes[0] != HEADER_V1) {
+            return decodeLegacy(bytes);
+        }
+
+        int[] pos = {1};
+        long unscaled = unZigZag(readVarLong(bytes, pos));
+        int scale = bytes[pos[0]++];
+        long timestampMs = readVarLong(bytes, pos);
+        return new DecodedPrice(BigDecimal.valueOf(unscaled, scale), timestampMs);
+    }
+
+    public static BigDecimal decodePrice(byte[] bytes) {
+        DecodedPrice decoded = decode(bytes);
+        return decoded != null ? decoded.price() : null;
+    }
+
+    // JSON written by GenericJackson2JsonRedisSerializer before the binary format
+    private static DecodedPrice decodeLegacy(byte[] bytes) {
+        Object value = LEGACY.deserialize(bytes);
+        return value != null ? new DecodedPrice(new BigDecimal(value.toString()), 0L) : null;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] bytes, int[] pos) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = bytes[pos[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.pms.analytics.externalRedis;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+// Position changes ingested on one instance for portfolios computed on another, one set per shard.
+@Service
+@RequiredArgsConstructor
+public class RedisChangedPortfolioStore {
+
+    // Read and delete every listed shard set in one step, so no member is seen by two instances.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final DefaultRedisScript<List<String>> DRAIN = new DefaultRedisScript<>("""
+            local drained = {}
+            for _, key in ipairs(KEYS) do
+                for _, member in ipairs(redis.call('SMEMBERS', key)) do
+                    drained[#drained + 1] = member
+                end
+                redis.call('DEL', key)
+            end
+            return drained
+            """, (Class<List<String>>) (Class) List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${scheduler.price-refresh.shared-changes.redis-key-prefix:analytics:changed:}")
+    private String prefix;
+
+    @Value("${scheduler.price-refresh.shared-changes.ttl-ms:600000}")
+    private long ttlMs;
+
+    public void add(Map<Integer, List<String>> membersByShard) {
+        membersByShard.forEach((shard, members) -> {
+            String key = prefix + shard;
+            redisTemplate.opsForSet().add(key, members.toArray(String[]::new));
+            redisTemplate.expire(key, ttlMs, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    public List<String> drain(Collection<Integer> shards) {
+        if (shards.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> drained = redisTemplate.execute(DRAIN, shards.stream().map(shard -> prefix + shard).toList());
+        return drained != null ? drained : List.of();
+    }
+}
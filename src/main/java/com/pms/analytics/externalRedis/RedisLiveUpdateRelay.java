@@ -0,0 +1,37 @@
+package com.pms.analytics.externalRedis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+// Pub/sub channel shared by all analytics instances for live WebSocket updates.
+@Service
+@RequiredArgsConstructor
+public class RedisLiveUpdateRelay {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${websocket.relay.channel:analytics:live-updates}")
+    private String channel;
+
+    public void publish(byte[] payload) {
+        byte[] channelBytes = channel.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channelBytes, payload));
+    }
+
+    public void subscribe(Consumer<byte[]> listener) {
+        listenerContainer.addMessageListener(
+                (Message message, byte[] pattern) -> listener.accept(message.getBody()),
+                new ChannelTopic(channel));
+    }
+}
@@ -38,39 +38,248 @@
 package com.pms.analytics.externalRedis;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 
+import com.pms.analytics.service.PortfolioChangeTracker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class RedisPriceCache {
 
-    private final RedisTemplate<String, Object> redis;
+    private final RedisTemplate<String, byte[]> priceRedisTemplate;
+    private final PortfolioChangeTracker changeTracker;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
 
+    // Shared with other services, which read it as Jackson JSON
     @Value("${app.redis.price-key:prices}")
     private String priceKey;
 
+    @Value("${app.redis.binary-price-key:prices:bin}")
+    private String binaryPriceKey;
+
+    @Value("${app.redis.legacy-price-hash.enabled:true}")
+    private boolean legacyPriceHash;
+
+    @Value("${app.redis.near-cache.enabled:true}")
+    private boolean nearCacheEnabled;
+
+    @Value("${app.redis.near-cache.max-staleness-ms:5000}")
+    private long maxStalenessMs;
+
+    // In-process copy of the whole price hash. It is dropped when a keyspace
+    // notification for the hash arrives, and reloaded at least every
+    // max-staleness-ms in case notifications are lost or disabled.
+    private final Map<String, BigDecimal> nearCache = new ConcurrentHashMap<>();
+    private volatile long loadedAtMs = 0;
+    private volatile boolean invalidated = true;
+
+    // Keyspace events still expected for this instance's own writes, which are applied locally already.
+    private final AtomicInteger pendingOwnWrites = new AtomicInteger();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        hits = Counter.builder("analytics.price.near_cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("analytics.price.near_cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("analytics.price.near_cache.hit_ratio", this, RedisPriceCache::hitRatio)
+                .register(meterRegistry);
+
+        if (nearCacheEnabled) {
+            listenerContainer.addMessageListener(
+                    (Message message, byte[] pattern) -> onKeyspaceEvent(),
+                    new PatternTopic("__keyspace@*__:" + binaryPriceKey));
+            log.info("Price near-cache enabled, max staleness {} ms.", maxStalenessMs);
+        }
+    }
+
     public void updatePrice(String symbol, BigDecimal price) {
-        redis.opsForHash().put(priceKey, symbol, price);
+        putPrices(Map.of(symbol, price));
+    }
+
+    // Single multi-field HSET for the whole map, plus one for the JSON hash while it is kept
+    public void putPrices(Map<String, BigDecimal> prices) {
+        if (prices.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Map<String, byte[]> encoded = new HashMap<>(prices.size() * 2);
+        prices.forEach((symbol, price) -> encoded.put(symbol, PriceCodec.encode(price, now)));
+
+        if (legacyPriceHash) {
+            Map<String, byte[]> json = new HashMap<>(prices.size() * 2);
+            prices.forEach((symbol, price) -> json.put(symbol, PriceCodec.encodeLegacy(price)));
+            hash().putAll(priceKey, json);
+        }
+
+        if (nearCacheEnabled) {
+            pendingOwnWrites.incrementAndGet();
+        }
+        try {
+            hash().putAll(binaryPriceKey, encoded);
+        } catch (RuntimeException ex) {
+            if (nearCacheEnabled) {
+                pendingOwnWrites.decrementAndGet();
+            }
+            throw ex;
+        }
+
+        if (nearCacheEnabled) {
+            nearCache.putAll(prices);
+        }
+        prices.forEach(changeTracker::onPriceUpdated);
     }
 
     public BigDecimal getPrice(String symbol) {
-        Object value = redis.opsForHash().get(priceKey, symbol);
-        return value != null ? new BigDecimal(value.toString()) : null;
+        if (!nearCacheEnabled) {
+            return getPrices(List.of(symbol)).get(symbol);
+        }
+
+        boolean fresh = ensureFresh();
+        BigDecimal price = nearCache.get(symbol);
+        count(fresh && price != null);
+        return price;
+    }
+
+    // Single HMGET when the near-cache is off; symbols without a price are left out
+    public Map<String, BigDecimal> getPrices(Collection<String> symbols) {
+        Map<String, BigDecimal> prices = new HashMap<>(symbols.size() * 2);
+        if (symbols.isEmpty()) {
+            return prices;
+        }
+
+        if (nearCacheEnabled) {
+            boolean fresh = ensureFresh();
+            symbols.forEach(symbol -> {
+                BigDecimal price = nearCache.get(symbol);
+                count(fresh && price != null);
+                if (price != null) {
+                    prices.put(symbol, price);
+                }
+            });
+            return prices;
+        }
+
+        List<String> fields = new ArrayList<>(symbols);
+        List<String> missing = readInto(prices, binaryPriceKey, fields);
+        if (!missing.isEmpty()) {
+            readInto(prices, priceKey, missing);
+        }
+        return prices;
     }
 
     public Map<String, BigDecimal> getAllPrices() {
-        Map<Object, Object> entries = redis.opsForHash().entries(priceKey);
-        return entries.entrySet().stream()
-                .collect(Collectors.toMap(
-                        e -> e.getKey().toString(),
-                        e -> new BigDecimal(e.getValue().toString())
-                ));
+        if (!nearCacheEnabled) {
+            return loadAll();
+        }
+
+        count(ensureFresh());
+        return new HashMap<>(nearCache);
+    }
+
+    public double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+
+    // Returns whether the near-cache could be used as it was, without a reload.
+    private boolean ensureFresh() {
+        if (isFresh()) {
+            return true;
+        }
+
+        reload();
+        return false;
+    }
+
+    private void count(boolean hit) {
+        (hit ? hits : misses).increment();
+    }
+
+    // An event matching one of our own writes is consumed; any surplus means another writer changed the hash.
+    private void onKeyspaceEvent() {
+        if (pendingOwnWrites.getAndUpdate(pending -> pending > 0 ? pending - 1 : 0) == 0) {
+            invalidated = true;
+        }
+    }
+
+    private boolean isFresh() {
+        return !invalidated && System.currentTimeMillis() - loadedAtMs < maxStalenessMs;
+    }
+
+    private synchronized void reload() {
+        if (isFresh()) {
+            return;
+        }
+
+        // cleared first so a notification that races with the load forces another reload;
+        // the own-write count is reset too so it cannot drift while notifications are off
+        invalidated = false;
+        pendingOwnWrites.set(0);
+        Map<String, BigDecimal> latest = loadAll();
+
+        nearCache.keySet().retainAll(latest.keySet());
+        nearCache.putAll(latest);
+        loadedAtMs = System.currentTimeMillis();
+    }
+
+    // Returns the fields that had no price under the key.
+    private List<String> readInto(Map<String, BigDecimal> prices, String key, List<String> fields) {
+        List<String> missing = new ArrayList<>();
+        List<byte[]> values = hash().multiGet(key, fields);
+        for (int i = 0; i < fields.size(); i++) {
+            BigDecimal price = PriceCodec.decodePrice(values.get(i));
+            if (price != null) {
+                prices.put(fields.get(i), price);
+            } else {
+                missing.add(fields.get(i));
+            }
+        }
+        return missing;
+    }
+
+    // The JSON hash is only read until the first refresh has written the binary one.
+    private Map<String, BigDecimal> loadAll() {
+        Map<String, byte[]> entries = hash().entries(binaryPriceKey);
+        if (entries.isEmpty()) {
+            entries = hash().entries(priceKey);
+        }
+        Map<String, BigDecimal> prices = new HashMap<>(entries.size() * 2);
+        entries.forEach((symbol, value) -> {
+            BigDecimal price = PriceCodec.decodePrice(value);
+            if (price != null) {
+                prices.put(symbol, price);
+            }
+        });
+        return prices;
+    }
+
+    private HashOperations<String, String, byte[]> hash() {
+        return priceRedisTemplate.opsForHash();
     }
 }
@@ -0,0 +1,76 @@
+package com.pms.analytics.externalRedis;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Token bucket kept in Redis, so every analytics instance draws on the same
+ * Finnhub quota. Same semantics as {@link com.pms.analytics.utilities.TokenBucket},
+ * refilled against the Redis server clock.
+ */
+@Service
+@RequiredArgsConstructor
+public class RedisRateLimiter {
+
+    // ARGV: capacity, micros per token, max wait micros. Returns the micros to wait, or -1.
+    private static final DefaultRedisScript<Long> RESERVE = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+            local capacity = tonumber(ARGV[1])
+            local perToken = tonumber(ARGV[2])
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1]) or capacity
+            local last = tonumber(state[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - last) / perToken)
+            local wait = 0
+            if tokens < 1 then
+                wait = math.ceil((1 - tokens) * perToken)
+            end
+            if wait <= tonumber(ARGV[3]) then
+                tokens = tokens - 1
+            else
+                wait = -1
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity * perToken / 1000) + 60000)
+            return wait
+            """, Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            local tokens = tonumber(redis.call('HGET', KEYS[1], 'tokens'))
+            if tokens then
+                redis.call('HSET', KEYS[1], 'tokens', tostring(math.min(tonumber(ARGV[1]), tokens + 1)))
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${finnhub.rate-limit.redis-key:analytics:finnhub:rate-limit}")
+    private String key;
+
+    // Returns the nanos the caller must wait before its request may go out, or -1 when that exceeds maxWaitNanos.
+    public long tryReserve(int permitsPerMinute, int burst, long maxWaitNanos) {
+        long microsPerToken = TimeUnit.MINUTES.toMicros(1) / Math.max(permitsPerMinute, 1);
+        Long waitMicros = redisTemplate.execute(RESERVE, List.of(key),
+                String.valueOf(Math.max(burst, 1)),
+                String.valueOf(microsPerToken),
+                String.valueOf(Math.max(TimeUnit.NANOSECONDS.toMicros(maxWaitNanos), -1)));
+        if (waitMicros == null) {
+            throw new IllegalStateException("Rate limit script returned no result");
+        }
+        return waitMicros < 0 ? -1L : TimeUnit.MICROSECONDS.toNanos(waitMicros);
+    }
+
+    // Gives back a reserved token whose request never went out.
+    public void release(int burst) {
+        redisTemplate.execute(RELEASE, List.of(key), String.valueOf(Math.max(burst, 1)));
+    }
+}
@@ -0,0 +1,35 @@
+package com.pms.analytics.externalRedis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+// Pub/sub channel on which a replaying instance asks every instance to pause and resume ingestion.
+@Service
+@RequiredArgsConstructor
+public class RedisReplayControl {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${replay.control-channel:analytics:replay-control}")
+    private String channel;
+
+    public void publish(String command) {
+        redisTemplate.convertAndSend(channel, command);
+    }
+
+    public void subscribe(Consumer<String> listener) {
+        listenerContainer.addMessageListener(
+                (Message message, byte[] pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel));
+    }
+}
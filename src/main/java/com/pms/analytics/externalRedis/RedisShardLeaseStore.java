@@ -0,0 +1,76 @@
+package com.pms.analytics.externalRedis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class RedisShardLeaseStore {
+
+    // Take the lease when it is free, or extend it when this instance already holds it.
+    private static final DefaultRedisScript<Long> ACQUIRE_OR_RENEW = new DefaultRedisScript<>("""
+            local owner = redis.call('GET', KEYS[1])
+            if owner == false then
+                redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+                return 1
+            elseif owner == ARGV[1] then
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${sharding.redis-key-prefix:analytics:shard:}")
+    private String prefix;
+
+    public List<String> heartbeat(String instanceId, long nowMs, long ttlMs) {
+        String membersKey = prefix + "members";
+
+        redisTemplate.opsForZSet().add(membersKey, instanceId, nowMs);
+        redisTemplate.opsForZSet().removeRangeByScore(membersKey, Double.NEGATIVE_INFINITY, nowMs - ttlMs);
+        redisTemplate.expire(membersKey, ttlMs * 4, TimeUnit.MILLISECONDS);
+
+        Set<String> members = redisTemplate.opsForZSet().range(membersKey, 0, -1);
+        return members != null ? new ArrayList<>(members) : List.of();
+    }
+
+    public void leave(String instanceId) {
+        redisTemplate.opsForZSet().remove(prefix + "members", instanceId);
+    }
+
+    public boolean acquireOrRenew(int shard, String instanceId, long ttlMs) {
+        Long result = redisTemplate.execute(
+                ACQUIRE_OR_RENEW,
+                List.of(leaseKey(shard)),
+                instanceId,
+                String.valueOf(ttlMs)
+        );
+        return result != null && result == 1L;
+    }
+
+    public void release(int shard, String instanceId) {
+        redisTemplate.execute(RELEASE, List.of(leaseKey(shard)), instanceId);
+    }
+
+    private String leaseKey(int shard) {
+        return prefix + "lease:" + shard;
+    }
+}
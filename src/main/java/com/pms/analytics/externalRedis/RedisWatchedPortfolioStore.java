@@ -0,0 +1,41 @@
+package com.pms.analytics.externalRedis;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+// Portfolios with live viewers on any instance, scored by when a viewer was last seen.
+@Service
+@RequiredArgsConstructor
+public class RedisWatchedPortfolioStore {
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${websocket.watch.redis-key:analytics:watched-portfolios}")
+    private String key;
+
+    public void touch(Collection<String> portfolioIds, long nowMs, long ttlMs) {
+        if (!portfolioIds.isEmpty()) {
+            Set<TypedTuple<String>> members = portfolioIds.stream()
+                    .map(id -> (TypedTuple<String>) new DefaultTypedTuple<>(id, (double) nowMs))
+                    .collect(Collectors.toSet());
+            redisTemplate.opsForZSet().add(key, members);
+        }
+        redisTemplate.opsForZSet().removeRangeByScore(key, Double.NEGATIVE_INFINITY, nowMs - ttlMs);
+        redisTemplate.expire(key, ttlMs * 4, TimeUnit.MILLISECONDS);
+    }
+
+    public Set<String> watchedSince(long sinceMs) {
+        Set<String> members = redisTemplate.opsForZSet().rangeByScore(key, sinceMs, Double.POSITIVE_INFINITY);
+        return members != null ? members : Set.of();
+    }
+}
@@ -0,0 +1,75 @@
+package com.pms.analytics.mapper;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pms.analytics.dto.LiveUpdate.LiveUpdateBatch;
+import com.pms.analytics.dto.LiveUpdate.PositionDelta;
+import com.pms.analytics.dto.LiveUpdate.PositionUpdate;
+import com.pms.analytics.dto.LiveUpdate.UnrealizedPnlUpdate;
+import com.pms.analytics.dto.PositionDeltaDto;
+import com.pms.analytics.dto.PositionUpdateDto;
+import com.pms.analytics.dto.RiskEventDto;
+import com.pms.analytics.dto.UnrealizedPnlDto;
+
+public class LiveUpdateMapper {
+
+    public static PositionUpdate toProto(PositionUpdateDto dto) {
+        PositionUpdate.Builder builder = PositionUpdate.newBuilder()
+                .setPortfolioId(dto.getPortfolioId());
+
+        for (PositionDeltaDto delta : dto.getPositions()) {
+            PositionDelta.Builder position = PositionDelta.newBuilder().setSymbol(delta.getSymbol());
+            if (delta.getHoldings() != null) {
+                position.setHoldings(delta.getHoldings());
+            }
+            if (delta.getTotalInvested() != null) {
+                position.setTotalInvested(delta.getTotalInvested().toPlainString());
+            }
+            if (delta.getRealizedPnl() != null) {
+                position.setRealizedPnl(delta.getRealizedPnl().toPlainString());
+            }
+            builder.addPositions(position);
+        }
+        return builder.build();
+    }
+
+    public static UnrealizedPnlUpdate toProto(UnrealizedPnlDto dto) {
+        UnrealizedPnlUpdate.Builder builder = UnrealizedPnlUpdate.newBuilder()
+                .setPortfolioId(dto.getPortfolio_id())
+                .setOverallUnrealisedPnl(dto.getOverallUnrealised_Pnl().toPlainString());
+
+        dto.getSymbol().forEach((symbol, value) -> builder.putSymbol(symbol, value.toPlainString()));
+        return builder.build();
+    }
+
+    public static LiveUpdateBatch toProto(String origin, List<PositionUpdateDto> positions,
+            List<UnrealizedPnlDto> unrealized, List<RiskEventDto> risk) {
+        LiveUpdateBatch.Builder builder = LiveUpdateBatch.newBuilder().setOrigin(origin);
+        positions.forEach(update -> builder.addPositions(toProto(update)));
+        unrealized.forEach(update -> builder.addUnrealized(toProto(update)));
+        risk.forEach(update -> builder.addRisk(RiskEventMapper.toProto(update)));
+        return builder.build();
+    }
+
+    public static PositionUpdateDto fromProto(PositionUpdate proto) {
+        List<PositionDeltaDto> positions = new ArrayList<>(proto.getPositionsCount());
+        for (PositionDelta position : proto.getPositionsList()) {
+            positions.add(new PositionDeltaDto(
+                    position.getSymbol(),
+                    position.hasHoldings() ? position.getHoldings() : null,
+                    position.hasTotalInvested() ? new BigDecimal(position.getTotalInvested()) : null,
+                    position.hasRealizedPnl() ? new BigDecimal(position.getRealizedPnl()) : null));
+        }
+        return new PositionUpdateDto(proto.getPortfolioId(), positions);
+    }
+
+    public static UnrealizedPnlDto fromProto(UnrealizedPnlUpdate proto) {
+        Map<String, BigDecimal> symbols = new HashMap<>(proto.getSymbolCount() * 2);
+        proto.getSymbolMap().forEach((symbol, value) -> symbols.put(symbol, new BigDecimal(value)));
+        return new UnrealizedPnlDto(symbols, new BigDecimal(proto.getOverallUnrealisedPnl()), proto.getPortfolioId());
+    }
+}
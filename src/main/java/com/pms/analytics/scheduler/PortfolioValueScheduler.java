@@ -2,19 +2,24 @@ package com.pms.analytics.scheduler;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.pms.analytics.dao.AnalysisDao;
-import com.pms.analytics.dao.PortfolioValueHistoryDao;
+import com.pms.analytics.dao.PortfolioValueJdbcDao;
 import com.pms.analytics.dao.PortfolioValueStatusDao;
-import com.pms.analytics.dao.entity.AnalysisEntity;
-import com.pms.analytics.dao.entity.PortfolioValueHistoryEntity;
-import com.pms.analytics.externalRedis.RedisPriceCache;
+import com.pms.analytics.service.DataVersion;
+import com.pms.analytics.service.PriceSnapshot;
+import com.pms.analytics.service.PriceSnapshotService;
+import com.pms.analytics.service.ShardOwnershipService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,61 +29,102 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class PortfolioValueScheduler {
 
-    private final AnalysisDao analysisDao;
-    private final RedisPriceCache priceCache;
-    private final PortfolioValueHistoryDao historyDao;
+    private final PortfolioValueJdbcDao portfolioValueDao;
     private final PortfolioValueStatusDao portfolioValueStatusDao;
-    
+    private final PriceSnapshotService priceSnapshots;
+    private final ShardOwnershipService shardOwnership;
+    private final PlatformTransactionManager transactionManager;
+    private final DataVersion dataVersion;
+
+    @Value("${scheduler.portfolio-value.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${scheduler.portfolio-value.fetch-size:1000}")
+    private int fetchSize;
+
     // @Transactional
     // @Scheduled(cron = "0 59 23 * * ?", zone = "Asia/Kolkata")
     // public void calculatePortfolioValue() {
 
-    @Transactional
+    /**
+     * Positions are read through a single cursor ordered by portfolio and summed
+     * in one pass; finished portfolios are written in chunks, each committed in its
+     * own short transaction so locks are never held for the whole run.
+     */
     @Scheduled(cron = "${scheduler.portfolio-value.cron}", zone = "${scheduler.portfolio-value.timezone}")
     public void calculatePortfolioValue() {
 
-        List<AnalysisEntity> positions = analysisDao.findAll();
+        // Capture all live prices from Redis once
+        PriceSnapshot snapshot = priceSnapshots.capture();
+        LocalDate today = LocalDate.now();
 
-        if (positions.isEmpty()) return;
+        TransactionTemplate readTx = new TransactionTemplate(transactionManager);
+        readTx.setReadOnly(true);
 
-        // Fetch all live prices from Redis once
-        Map<String, BigDecimal> priceMap = priceCache.getAllPrices();
+        TransactionTemplate chunkTx = new TransactionTemplate(transactionManager);
+        chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
 
-        // Get unique portfolio IDs
-        positions.stream()
-            .map(p -> p.getId().getPortfolioId())
-            .distinct()
-            .forEach(portfolioId -> {
+        Map<UUID, BigDecimal> chunk = new LinkedHashMap<>();
+        UUID[] current = new UUID[1];
+        BigDecimal[] value = {BigDecimal.ZERO};
+        int[] written = {0};
 
-                if(portfolioValueStatusDao.computedRecently(portfolioId))
-                {
-                    log.info("Portfolio value for this portfolio {} have been calculated within 23 hours.",portfolioId);
-                    return;
-                }
+        readTx.executeWithoutResult(status -> portfolioValueDao.streamPositionsDueForValuation(fetchSize, rs -> {
+            UUID portfolioId = rs.getObject("portfolio_id", UUID.class);
 
-                if(!portfolioValueStatusDao.tryAdvisoryLock(portfolioId))
-                {
-                    log.info("Portfolio value for this portfolio {} is been calculating by another instance.",portfolioId);
-                    return;
+            if (!portfolioId.equals(current[0])) {
+                if (current[0] != null && shardOwnership.shouldProcess(current[0])) {
+                    chunk.put(current[0], value[0]);
+                    if (chunk.size() >= chunkSize) {
+                        written[0] += writeChunk(chunkTx, today, chunk);
+                    }
                 }
+                current[0] = portfolioId;
+                value[0] = BigDecimal.ZERO;
+            }
+
+            BigDecimal price = snapshot.priceOrZero(rs.getString("symbol"));
+            value[0] = value[0].add(price.multiply(BigDecimal.valueOf(rs.getLong("holdings"))));
+        }));
+
+        if (current[0] != null && shardOwnership.shouldProcess(current[0])) {
+            chunk.put(current[0], value[0]);
+        }
+        written[0] += writeChunk(chunkTx, today, chunk);
+        if (written[0] > 0) {
+            dataVersion.bump();
+        }
+
+        log.info("Portfolio value computed for {} portfolios.", written[0]);
+    }
 
-                BigDecimal portfolioValue = positions.stream()
-                        .filter(p -> p.getId().getPortfolioId().equals(portfolioId))
-                        .map(p -> {
-                            String symbol = p.getId().getSymbol();
-                            BigDecimal price = priceMap.getOrDefault(symbol, BigDecimal.ZERO);
-                            return price.multiply(BigDecimal.valueOf(p.getHoldings()));
-                        })
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                PortfolioValueHistoryEntity history = new PortfolioValueHistoryEntity();
-                history.setPortfolioId(portfolioId);
-                history.setDate(LocalDate.now());
-                history.setPortfolioValue(portfolioValue);
+    private int writeChunk(TransactionTemplate chunkTx, LocalDate date, Map<UUID, BigDecimal> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        Integer count = chunkTx.execute(status -> {
+            Set<UUID> locked = portfolioValueStatusDao.tryAdvisoryLocks(chunk.keySet());
+            // the due list was read before locking; another instance may have committed since
+            Set<UUID> done = portfolioValueStatusDao.computedRecently(locked);
+
+            Map<UUID, BigDecimal> writable = new LinkedHashMap<>();
+            chunk.forEach((id, value) -> {
+                if (!locked.contains(id)) {
+                    log.info("Portfolio value for this portfolio {} is been calculating by another instance.", id);
+                } else if (done.contains(id)) {
+                    log.info("Portfolio value for this portfolio {} was computed by another instance.", id);
+                } else {
+                    writable.put(id, value);
+                }
+            });
 
-                historyDao.save(history);
+            portfolioValueDao.insertHistory(date, writable);
+            portfolioValueStatusDao.updateLastComputed(writable.keySet());
+            return writable.size();
+        });
 
-                portfolioValueStatusDao.updateLastComputed(portfolioId);
-            });
+        chunk.clear();
+        return count != null ? count : 0;
     }
 }
@@ -1,6 +1,10 @@
 package com.pms.analytics.scheduler;
 
+import java.math.BigDecimal;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -9,7 +13,13 @@ import org.springframework.stereotype.Service;
 import com.pms.analytics.dao.AnalysisDao;
 import com.pms.analytics.externalRedis.ExternalPriceClient;
 import com.pms.analytics.externalRedis.RedisPriceCache;
+import com.pms.analytics.service.IntradayTickStore;
+import com.pms.analytics.service.PortfolioChangeSet;
+import com.pms.analytics.service.PortfolioChangeTracker;
+import com.pms.analytics.service.PriceSnapshot;
+import com.pms.analytics.service.PriceSnapshotService;
 import com.pms.analytics.service.RiskMetricsCalculator;
+import com.pms.analytics.service.ShardOwnershipService;
 import com.pms.analytics.service.UnrealizedPnlCalculator;
 
 import lombok.RequiredArgsConstructor;
@@ -33,6 +43,18 @@ public class PriceUpdateScheduler {
     @Autowired
     RiskMetricsCalculator riskMetrics;
 
+    @Autowired
+    PortfolioChangeTracker changeTracker;
+
+    @Autowired
+    PriceSnapshotService priceSnapshots;
+
+    @Autowired
+    IntradayTickStore intradayTicks;
+
+    @Autowired
+    ShardOwnershipService shardOwnership;
+
     // @Scheduled(fixedDelay = 30000)
     @Scheduled(fixedDelayString = "${scheduler.price-refresh.delay-ms}")
     public void refreshPrices() {
@@ -40,14 +62,40 @@ public class PriceUpdateScheduler {
         List<String> symbols = analysisDao.findAllSymbols();
         if (symbols.isEmpty()) return;
 
-        symbols.forEach(symbol ->
-            priceClient.fetchPriceAsync(symbol)
-                    .subscribe(price -> priceCache.updatePrice(symbol, price))
-        );
-
-        unrealizedPnl.computeUnRealisedPnlAndBroadcast();
-
-        riskMetrics.computeRiskMetricsForAllPortfolios();
+        // Each instance fetches only the symbols of its shards; the others' land in the shared cache
+        List<String> owned = symbols.stream().filter(shardOwnership::processesSymbol).toList();
+
+        // Wait for this cycle's prices to land before computing on them
+        Map<String, BigDecimal> prices = owned.isEmpty() ? null : priceClient.refreshPrices(owned).block();
+        if (prices != null) {
+            priceCache.putPrices(prices);
+        }
+
+        // Symbols no instance has priced yet are fetched here, once, not by every portfolio holding them;
+        // owned ones were already tried above and rotate to the front of the next cycle instead
+        Map<String, BigDecimal> current = priceCache.getPrices(symbols);
+        Set<String> tried = new HashSet<>(owned);
+        List<String> missing = symbols.stream()
+                .filter(symbol -> !current.containsKey(symbol) && !tried.contains(symbol))
+                .toList();
+        if (!missing.isEmpty()) {
+            Map<String, BigDecimal> fetched = priceClient.refreshPrices(missing).block();
+            if (fetched != null && !fetched.isEmpty()) {
+                priceCache.putPrices(fetched);
+                current.putAll(fetched);
+            }
+        }
+        intradayTicks.record(current, System.currentTimeMillis());
+
+        PortfolioChangeSet changes = changeTracker.nextCycle();
+        if (changes.isEmpty()) return;
+
+        // One consistent set of prices for every calculator in this cycle
+        PriceSnapshot snapshot = priceSnapshots.capture();
+
+        unrealizedPnl.computeUnRealisedPnlAndBroadcast(changes, snapshot);
+
+        riskMetrics.computeRiskMetricsForAllPortfolios(changes, snapshot);
 
     }
 }
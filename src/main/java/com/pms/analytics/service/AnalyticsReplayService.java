@@ -0,0 +1,218 @@
+package com.pms.analytics.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pms.analytics.dao.AnalysisReplayDao;
+import com.pms.analytics.dao.entity.AnalysisEntity;
+import com.pms.analytics.dao.entity.AnalysisEntity.AnalysisKey;
+import com.pms.analytics.dto.ReplayResultDto;
+import com.pms.analytics.utilities.PositionAccounting;
+import com.pms.analytics.utilities.TradeSide;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rebuilds the analytics table from pms_core_trades without Kafka. Trades are
+ * read once in timestamp order and fanned out by portfolio to worker threads,
+ * so each portfolio is replayed sequentially while portfolios run in parallel.
+ * Each trade is applied through its pms_core_transactions rows with the buy
+ * price recorded on them, as live ingestion applies them, so the replay
+ * reproduces the same positions.
+ *
+ * <p>Live ingestion is paused on every instance for the duration, and the
+ * ingestion fence keeps any batch still in flight, or on an instance that missed
+ * the pause, from committing a position between the cursor and the swap, where
+ * the swap would discard it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsReplayService {
+
+    private static final TradeRow END = new TradeRow(null, null, null, null, null, 0);
+
+    private final AnalysisReplayDao replayDao;
+    private final PlatformTransactionManager transactionManager;
+    private final SectorRollupIndex sectorRollups;
+    private final DataVersion dataVersion;
+    private final IngestionPause ingestionPause;
+
+    @Value("${replay.workers:0}")
+    private int workers;
+
+    @Value("${replay.fetch-size:5000}")
+    private int fetchSize;
+
+    @Value("${replay.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ReplayResultDto rebuild() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A replay is already running");
+        }
+
+        try {
+            AnalysisReplayDao.ReplayLock lock = replayDao.tryLockForReplay();
+            if (lock == null) {
+                throw new IllegalStateException("A replay is already running on another instance");
+            }
+            try (lock) {
+                ingestionPause.pauseAll();
+                try {
+                    lock.fenceIngestion();
+                    return replay();
+                } finally {
+                    ingestionPause.resumeAll();
+                }
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReplayResultDto replay() {
+        int partitionCount = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        List<ReplayPartition> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new ReplayPartition(new ArrayBlockingQueue<>(queueCapacity)));
+        }
+
+        long start = System.nanoTime();
+        long[] trades = {0};
+
+        ExecutorService executor = Executors.newFixedThreadPool(partitionCount);
+        try {
+            List<Future<?>> futures = partitions.stream().<Future<?>>map(executor::submit).toList();
+
+            TransactionTemplate readTx = new TransactionTemplate(transactionManager);
+            readTx.setReadOnly(true);
+            readTx.executeWithoutResult(status -> replayDao.streamTransactionsInOrder(fetchSize, rs -> {
+                TradeRow trade = new TradeRow(
+                        rs.getObject("portfolio_id", UUID.class),
+                        rs.getString("symbol"),
+                        TradeSide.valueOf(rs.getString("side")),
+                        rs.getBigDecimal("price_per_stock"),
+                        rs.getBigDecimal("buy_price"),
+                        rs.getLong("quantity"));
+
+                partitions.get(Math.floorMod(trade.portfolioId().hashCode(), partitionCount)).put(trade);
+                trades[0]++;
+            }));
+
+            partitions.forEach(partition -> partition.put(END));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Replay interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Replay worker failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long replayNanos = System.nanoTime() - start;
+        log.info("Replayed {} transactions in {} ms ({} transactions/s).",
+                trades[0], replayNanos / 1_000_000, String.format("%.0f", perSecond(trades[0], replayNanos)));
+
+        List<AnalysisEntity> positions = new ArrayList<>();
+        long skipped = 0;
+        for (ReplayPartition partition : partitions) {
+            positions.addAll(partition.positions.values());
+            skipped += partition.skipped;
+        }
+
+        replayDao.createStagingTable();
+        long copied = replayDao.copyIntoStaging(positions);
+        replayDao.swapStagingIn();
+        sectorRollups.rebuild();
+        dataVersion.bump();
+
+        long elapsedNanos = System.nanoTime() - start;
+        log.info("Rebuilt analytics with {} positions from {} transactions ({} skipped) in {} ms.",
+                copied, trades[0], skipped, elapsedNanos / 1_000_000);
+
+        return new ReplayResultDto(trades[0], skipped, copied, elapsedNanos / 1_000_000,
+                perSecond(trades[0], elapsedNanos));
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos > 0 ? count * 1_000_000_000d / nanos : 0;
+    }
+
+    // One pms_core_transactions row with its trade's side and price.
+    private record TradeRow(UUID portfolioId, String symbol, TradeSide side, BigDecimal price, BigDecimal buyPrice,
+            long quantity) {
+    }
+
+    private static final class ReplayPartition implements Runnable {
+
+        private final BlockingQueue<TradeRow> queue;
+        private final Map<AnalysisKey, AnalysisEntity> positions = new HashMap<>();
+        private long skipped;
+
+        private ReplayPartition(BlockingQueue<TradeRow> queue) {
+            this.queue = queue;
+        }
+
+        private void put(TradeRow trade) {
+            try {
+                queue.put(trade);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Replay interrupted", ex);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (TradeRow trade = queue.take(); trade != END; trade = queue.take()) {
+                    try {
+                        apply(trade);
+                    } catch (RuntimeException ex) {
+                        // keep draining so the reader never blocks on a dead partition
+                        log.warn("Skipping trade for portfolio {}: {}", trade.portfolioId(), ex.getMessage());
+                        skipped++;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Same accounting as TransactionService.processTransaction; a failing sell is skipped like a DLT entry.
+        private void apply(TradeRow trade) {
+            AnalysisKey key = new AnalysisKey(trade.portfolioId(), trade.symbol());
+            AnalysisEntity position = positions.computeIfAbsent(key, k ->
+                    new AnalysisEntity(k, 0L, BigDecimal.ZERO, BigDecimal.ZERO, null, null));
+
+            if (trade.side() == TradeSide.BUY) {
+                PositionAccounting.applyBuy(position, trade.quantity(), trade.buyPrice());
+            } else {
+                PositionAccounting.applySell(position, trade.quantity(), trade.price(), trade.buyPrice());
+            }
+        }
+    }
+}
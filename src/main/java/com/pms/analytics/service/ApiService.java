@@ -1,15 +1,25 @@
 package com.pms.analytics.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pms.analytics.dao.AnalysisDao;
+import com.pms.analytics.dao.AnalysisJdbcDao;
 import com.pms.analytics.dao.PortfolioValueHistoryDao;
 import com.pms.analytics.dao.entity.AnalysisEntity;
 import com.pms.analytics.dao.entity.PortfolioValueHistoryEntity;
+import com.pms.analytics.dto.AnalysisPageDto;
 
 @Service
 public class ApiService {
@@ -17,17 +27,70 @@ public class ApiService {
     AnalysisDao analysisDao;
 
     @Autowired
-    UnrealizedPnlCalculator unrealizedPnl;
+    AnalysisJdbcDao analysisJdbcDao;
 
     @Autowired
     PortfolioValueHistoryDao historyDao;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${api.analysis.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${api.analysis.stream-fetch-size:1000}")
+    private int streamFetchSize;
+
     public List<AnalysisEntity> getAllAnalysis(){
         return analysisDao.findAll();
     }
 
-    public void getUnrealizedPnl(){
-        unrealizedPnl.computeUnRealisedPnlAndBroadcast();
+    public AnalysisPageDto getAnalysisPage(UUID afterPortfolioId, String afterSymbol, int limit){
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        List<AnalysisEntity> items = analysisJdbcDao.findPage(afterPortfolioId, afterSymbol, pageSize);
+
+        if (items.size() < pageSize) {
+            return new AnalysisPageDto(items, null, null);
+        }
+
+        AnalysisEntity last = items.get(items.size() - 1);
+        return new AnalysisPageDto(items, last.getId().getPortfolioId(), last.getId().getSymbol());
+    }
+
+    public List<AnalysisEntity> getAnalysisByPortfolio(UUID portfolioId){
+        return analysisDao.findByIdPortfolioId(portfolioId);
+    }
+
+    /**
+     * Writes every position as newline-delimited JSON straight from a database
+     * cursor; memory use does not grow with the table.
+     */
+    public void streamAllAnalysis(OutputStream out){
+        TransactionTemplate readTx = new TransactionTemplate(transactionManager);
+        readTx.setReadOnly(true);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            int[] rows = {0};
+            readTx.executeWithoutResult(status -> analysisJdbcDao.streamAll(streamFetchSize, rs -> {
+                try {
+                    generator.writeObject(AnalysisJdbcDao.mapRow(rs, rows[0]));
+                    generator.writeRaw('\n');
+                    if (++rows[0] % streamFetchSize == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
     }
 
     public List<PortfolioValueHistoryEntity> getAllHistoryById(UUID portfolioId){
@@ -3,13 +3,13 @@ package com.pms.analytics.service;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.pms.analytics.dto.BatchResult;
 import com.pms.analytics.dto.TransactionOuterClass.Transaction;
+import com.pms.analytics.event.PositionsCommittedEvent;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -73,10 +73,7 @@ public class BatchProcessingService {
     // private DltOutboxDao dltOutboxDao;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
-
-    @Value("${websocket.topics.position-update}")
-    private String positionUpdateTopic;
+    private ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public void processBatch(List<Transaction> messages) {
@@ -87,12 +84,7 @@ public class BatchProcessingService {
         // Mark all processed transaction IDs
         result.processedTransactionIds().forEach(idempotencyService::markProcessed);
 
-        try {
-            // Send updated positions to WebSocket
-            log.info("Sending updated positions {} to WebSocket.", result.batchedAnalysisEntities());
-            messagingTemplate.convertAndSend(positionUpdateTopic, result.batchedAnalysisEntities());
-        } catch (RuntimeException ex) {
-            log.error("Failed sending updated positions to WebSocket", ex);
-        }
+        // Delivered to listeners once the batch commits; WebSocket work is queued to PostCommitNotificationStage
+        eventPublisher.publishEvent(new PositionsCommittedEvent(result.batchedAnalysisEntities()));
     }
 }
@@ -0,0 +1,118 @@
+package com.pms.analytics.service;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.pms.analytics.event.PositionsCommittedEvent;
+import com.pms.analytics.event.RemoteDataChangedEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Monotonic counter of committed data changes, used to version cached read
+ * responses. Local writes bump it directly; writes made by other instances are
+ * picked up by polling a shared Redis counter that every bump increments.
+ * The counter values this instance produced are remembered, so a poll can tell
+ * whether anything it did not write itself landed in between.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DataVersion {
+
+    private static final long UNCONFIRMED = -1;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${cache.response.version-key:analytics:data-version}")
+    private String versionKey;
+
+    private final AtomicReference<Stamp> stamp = new AtomicReference<>(new Stamp(0, UNCONFIRMED));
+    private volatile long lastSharedVersion = -1;
+    private volatile boolean unpublished = false;
+    private final NavigableSet<Long> ownSharedVersions = new ConcurrentSkipListSet<>();
+
+    public Stamp current() {
+        return stamp.get();
+    }
+
+    public void bump() {
+        publish();
+        stamp.updateAndGet(s -> new Stamp(s.local() + 1, UNCONFIRMED));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPositionsCommitted(PositionsCommittedEvent event) {
+        bump();
+    }
+
+    @Scheduled(fixedDelayString = "${cache.response.version-poll-ms:1000}")
+    public void pollSharedVersion() {
+        try {
+            // Read before the counter, so a confirmed stamp never claims a local write the counter has not seen.
+            Stamp observed = stamp.get();
+            if (unpublished) {
+                unpublished = false;
+                publish();
+            }
+
+            String value = redisTemplate.opsForValue().get(versionKey);
+            long shared = value != null ? Long.parseLong(value) : 0;
+            long previous = lastSharedVersion;
+
+            // A counter reset, or any value between the two polls that this instance did not produce.
+            boolean remote = shared != previous && (previous < 0 || shared < previous
+                    || ownSharedVersions.subSet(previous, false, shared, true).size() < shared - previous);
+            ownSharedVersions.headSet(shared, true).clear();
+
+            if (remote) {
+                // Listeners catch up before the new version is handed out.
+                eventPublisher.publishEvent(new RemoteDataChangedEvent(shared));
+            }
+            lastSharedVersion = shared;
+
+            Stamp confirmed = new Stamp(observed.local() + (remote ? 1 : 0), shared);
+            if (!confirmed.equals(observed) && !stamp.compareAndSet(observed, confirmed) && remote) {
+                stamp.updateAndGet(s -> new Stamp(s.local() + 1, UNCONFIRMED));
+            }
+        } catch (RuntimeException ex) {
+            log.debug("Could not read shared data version: {}", ex.getMessage());
+        }
+    }
+
+    private void publish() {
+        try {
+            Long shared = redisTemplate.opsForValue().increment(versionKey);
+            if (shared != null) {
+                ownSharedVersions.add(shared);
+            }
+        } catch (RuntimeException ex) {
+            // Counted on the next poll that reaches Redis, so other instances still see the change.
+            unpublished = true;
+            log.debug("Could not publish data version: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * The local counter orders this instance's data; the shared value, once a
+     * poll has confirmed it, is the Redis counter this data corresponds to and
+     * is the same on every instance that has caught up to it.
+     */
+    public record Stamp(long local, long shared) {
+
+        public boolean isShared() {
+            return shared != UNCONFIRMED;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.pms.analytics.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pms.analytics.externalRedis.RedisReplayControl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pauses the transactions listener on every instance while a replay rebuilds
+ * the analytics table. A pause lapses after {@code replay.pause-timeout-ms} so
+ * an instance that dies mid-replay cannot stall ingestion for good; the replay's
+ * ingestion fence still keeps a lapsed instance from writing before the swap.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IngestionPause {
+
+    private static final String LISTENER_ID = "transactionsListener";
+    private static final String PAUSE = "pause";
+    private static final String RESUME = "resume";
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final RedisReplayControl replayControl;
+
+    @Value("${replay.pause-timeout-ms:3600000}")
+    private long pauseTimeoutMs;
+
+    private volatile long pausedUntilMs;
+
+    @PostConstruct
+    public void subscribe() {
+        replayControl.subscribe(command -> {
+            if (PAUSE.equals(command)) {
+                pauseLocal();
+            } else if (RESUME.equals(command)) {
+                resumeLocal();
+            }
+        });
+    }
+
+    public void pauseAll() {
+        pauseLocal();
+        replayControl.publish(PAUSE);
+    }
+
+    public void resumeAll() {
+        resumeLocal();
+        replayControl.publish(RESUME);
+    }
+
+    @Scheduled(fixedDelayString = "${replay.pause-check-ms:10000}")
+    public void resumeExpired() {
+        long until = pausedUntilMs;
+        if (until != 0 && System.currentTimeMillis() > until) {
+            log.warn("Replay pause expired without a resume; resuming ingestion");
+            resumeLocal();
+        }
+    }
+
+    private void pauseLocal() {
+        pausedUntilMs = System.currentTimeMillis() + pauseTimeoutMs;
+        MessageListenerContainer container = registry.getListenerContainer(LISTENER_ID);
+        if (container != null) {
+            log.info("Pausing kafka consumer for a replay");
+            container.pause();
+        }
+    }
+
+    private void resumeLocal() {
+        pausedUntilMs = 0;
+        MessageListenerContainer container = registry.getListenerContainer(LISTENER_ID);
+        if (container != null && container.isPauseRequested()) {
+            log.info("Resuming kafka consumer after a replay");
+            container.resume();
+        }
+    }
+}
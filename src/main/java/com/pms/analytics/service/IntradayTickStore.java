@@ -0,0 +1,145 @@
+package com.pms.analytics.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.pms.analytics.dto.IntradayStatsDto;
+import com.pms.analytics.utilities.TickRingBuffer;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-symbol intraday tick history fed by the price refresh. Buffers live on
+ * the heap unless {@code intraday.storage-dir} is set, in which case each
+ * symbol is backed by a memory-mapped file in that directory.
+ */
+@Service
+@Slf4j
+public class IntradayTickStore {
+
+    @Value("${intraday.capacity:2880}")
+    private int capacity;
+
+    @Value("${intraday.storage-dir:}")
+    private String storageDir;
+
+    private final Map<String, TickRingBuffer> buffers = new ConcurrentHashMap<>();
+    private final Map<String, MappedByteBuffer> mapped = new ConcurrentHashMap<>();
+
+    public void record(Map<String, BigDecimal> prices, long timestampMs) {
+        prices.forEach((symbol, price) -> buffers
+                .computeIfAbsent(symbol, this::open)
+                .append(timestampMs, price.doubleValue()));
+    }
+
+    public IntradayStatsDto stats(String symbol, long windowMs) {
+        TickRingBuffer buffer = buffers.get(symbol);
+        if (buffer == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+
+        // the writer appends once per price cycle, so being overtaken more than once is not expected
+        WindowStats window = new WindowStats();
+        for (int attempt = 0; attempt < 3 && buffer.forEachSince(now - windowMs, window) < 0; attempt++) {
+            window = new WindowStats();
+        }
+
+        if (window.count == 0) {
+            return new IntradayStatsDto(symbol, now - windowMs, now, 0, 0, 0, 0, 0, 0, 0, 0);
+        }
+
+        long span = window.lastTimestamp - window.firstTimestamp;
+        double twap = span > 0 ? window.weightedSum / span : window.last;
+
+        return new IntradayStatsDto(
+                symbol,
+                window.firstTimestamp,
+                window.lastTimestamp,
+                window.count,
+                window.first,
+                window.last,
+                window.high,
+                window.low,
+                window.first != 0 ? window.last / window.first - 1 : 0,
+                Math.sqrt(window.sumSquaredLogReturns),
+                twap
+        );
+    }
+
+    @PreDestroy
+    public void flush() {
+        mapped.values().forEach(MappedByteBuffer::force);
+    }
+
+    private TickRingBuffer open(String symbol) {
+        if (storageDir == null || storageDir.isBlank()) {
+            return TickRingBuffer.onHeap(capacity);
+        }
+
+        Path file = Path.of(storageDir, symbol.replaceAll("[^A-Za-z0-9._-]", "_") + ".ticks");
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, TickRingBuffer.bytesFor(capacity));
+                mapped.put(symbol, buffer);
+                return new TickRingBuffer(buffer, capacity);
+            }
+        } catch (IOException ex) {
+            log.warn("Cannot map tick file {}, keeping {} ticks on heap: {}", file, symbol, ex.getMessage());
+            return TickRingBuffer.onHeap(capacity);
+        }
+    }
+
+    // Single pass over the window, oldest tick first.
+    private static final class WindowStats implements TickRingBuffer.TickVisitor {
+
+        int count;
+        long firstTimestamp;
+        long lastTimestamp;
+        double first;
+        double last;
+        double high;
+        double low;
+        double sumSquaredLogReturns;
+        double weightedSum;
+
+        @Override
+        public void visit(long timestampMs, double price) {
+            if (count == 0) {
+                firstTimestamp = timestampMs;
+                first = price;
+                high = price;
+                low = price;
+            } else {
+                high = Math.max(high, price);
+                low = Math.min(low, price);
+
+                if (last > 0 && price > 0) {
+                    double logReturn = Math.log(price / last);
+                    sumSquaredLogReturns += logReturn * logReturn;
+                }
+
+                // each price holds until the next tick
+                weightedSum += last * (timestampMs - lastTimestamp);
+            }
+
+            lastTimestamp = timestampMs;
+            last = price;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.pms.analytics.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pms.analytics.dto.PositionDeltaDto;
+import com.pms.analytics.dto.RiskEventDto;
+import com.pms.analytics.dto.UnrealizedPnlDto;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Latest full values per portfolio, whether computed here or relayed from
+ * another instance, so new subscribers can be answered without recomputing.
+ * Values of portfolios nobody watches are dropped once they have not changed
+ * for {@code websocket.latest-values.retention-ms}.
+ */
+@Service
+@RequiredArgsConstructor
+public class LatestValueStore {
+
+    public record Stamped<T>(T value, long computedAtMs) {}
+
+    private final WatchedPortfolios watchedPortfolios;
+
+    @Value("${websocket.latest-values.retention-ms:600000}")
+    private long retentionMs;
+
+    private final Map<UUID, Positions> positions = new ConcurrentHashMap<>();
+    private final Map<UUID, Stamped<UnrealizedPnlDto>> unrealized = new ConcurrentHashMap<>();
+    private final Map<UUID, Stamped<RiskEventDto>> risk = new ConcurrentHashMap<>();
+
+    public void putPosition(UUID portfolioId, PositionDeltaDto position) {
+        Positions current = positions.computeIfAbsent(portfolioId, id -> new Positions());
+        current.values.put(position.getSymbol(), position);
+        current.touchedMs = System.currentTimeMillis();
+    }
+
+    // Values loaded from the DB never replace ones already received live.
+    public void seedPositions(UUID portfolioId, Collection<PositionDeltaDto> loaded) {
+        Positions current = positions.computeIfAbsent(portfolioId, id -> new Positions());
+        loaded.forEach(position -> current.values.putIfAbsent(position.getSymbol(), position));
+        current.touchedMs = System.currentTimeMillis();
+        current.seeded = true;
+    }
+
+    /**
+     * Every position of the portfolio, or null until it has been seeded from the
+     * DB; live updates alone only cover the symbols that changed.
+     */
+    public Map<String, PositionDeltaDto> positions(UUID portfolioId) {
+        Positions current = positions.get(portfolioId);
+        return current != null && current.seeded ? current.values : null;
+    }
+
+    public void putUnrealized(UUID portfolioId, UnrealizedPnlDto value) {
+        unrealized.put(portfolioId, new Stamped<>(value, System.currentTimeMillis()));
+    }
+
+    public Stamped<UnrealizedPnlDto> unrealized(UUID portfolioId) {
+        return unrealized.get(portfolioId);
+    }
+
+    public void putRisk(RiskEventDto value) {
+        risk.put(value.getPortfolioId(), new Stamped<>(value, System.currentTimeMillis()));
+    }
+
+    public Stamped<RiskEventDto> risk(UUID portfolioId) {
+        return risk.get(portfolioId);
+    }
+
+    @Scheduled(fixedDelayString = "${websocket.latest-values.evict-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        Set<UUID> watched = watchedPortfolios.current();
+
+        positions.entrySet().removeIf(e -> e.getValue().touchedMs < cutoff && !watched.contains(e.getKey()));
+        unrealized.entrySet().removeIf(e -> e.getValue().computedAtMs() < cutoff && !watched.contains(e.getKey()));
+        risk.entrySet().removeIf(e -> e.getValue().computedAtMs() < cutoff && !watched.contains(e.getKey()));
+    }
+
+    private static final class Positions {
+        private final Map<String, PositionDeltaDto> values = new ConcurrentHashMap<>();
+        private volatile long touchedMs = System.currentTimeMillis();
+        private volatile boolean seeded;
+    }
+}
@@ -0,0 +1,23 @@
+package com.pms.analytics.service;
+
+import java.util.Set;
+import java.util.UUID;
+
+public record PortfolioChangeSet(boolean fullSweep, Set<UUID> portfolioIds) {
+
+    public static PortfolioChangeSet all() {
+        return new PortfolioChangeSet(true, Set.of());
+    }
+
+    public static PortfolioChangeSet of(Set<UUID> portfolioIds) {
+        return new PortfolioChangeSet(false, portfolioIds);
+    }
+
+    public boolean includes(UUID portfolioId) {
+        return fullSweep || portfolioIds.contains(portfolioId);
+    }
+
+    public boolean isEmpty() {
+        return !fullSweep && portfolioIds.isEmpty();
+    }
+}
@@ -0,0 +1,188 @@
+package com.pms.analytics.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.pms.analytics.dao.AnalysisDao;
+import com.pms.analytics.dao.entity.AnalysisEntity;
+import com.pms.analytics.dao.entity.AnalysisEntity.AnalysisKey;
+import com.pms.analytics.event.PositionsCommittedEvent;
+import com.pms.analytics.externalRedis.RedisChangedPortfolioStore;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks which portfolios need recomputation between price refresh cycles:
+ * portfolios whose positions changed in a committed batch, and holders of
+ * symbols whose price moved. Every few cycles a full sweep is forced as a
+ * safety net, which also rebuilds the symbol-to-portfolio index from the DB.
+ * Changes committed here for portfolios another instance computes are handed
+ * over through Redis at the start of the next cycle.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PortfolioChangeTracker {
+
+    private static final int UUID_LENGTH = 36;
+    private static final String CLOSED = ":0";
+
+    private final AnalysisDao analysisDao;
+    private final ShardOwnershipService shardOwnership;
+    private final RedisChangedPortfolioStore changedPortfolioStore;
+
+    @Value("${scheduler.price-refresh.full-sweep-every:10}")
+    private int fullSweepEvery;
+
+    private final Map<String, Set<UUID>> holdersBySymbol = new ConcurrentHashMap<>();
+
+    private final Map<String, BigDecimal> lastPrices = new ConcurrentHashMap<>();
+    private final Map<String, Long> priceVersions = new ConcurrentHashMap<>();
+    private final Map<String, Long> consumedPriceVersions = new ConcurrentHashMap<>();
+
+    private final Set<UUID> dirtyPortfolios = ConcurrentHashMap.newKeySet();
+
+    // "portfolioId:symbol" for a held position, "portfolioId:symbol:0" for a closed one
+    private final Set<String> outgoing = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong cycle = new AtomicLong();
+
+    public void onPriceUpdated(String symbol, BigDecimal price) {
+        BigDecimal previous = lastPrices.put(symbol, price);
+        if (previous == null || previous.compareTo(price) != 0) {
+            priceVersions.merge(symbol, 1L, Long::sum);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPositionsCommitted(PositionsCommittedEvent event) {
+        for (AnalysisEntity position : event.positions()) {
+            UUID portfolioId = position.getId().getPortfolioId();
+            String symbol = position.getId().getSymbol();
+
+            if (position.getHoldings() != null && position.getHoldings() > 0) {
+                holdersBySymbol.computeIfAbsent(symbol, s -> ConcurrentHashMap.newKeySet()).add(portfolioId);
+            } else {
+                Set<UUID> holders = holdersBySymbol.get(symbol);
+                if (holders != null) {
+                    holders.remove(portfolioId);
+                }
+            }
+
+            dirtyPortfolios.add(portfolioId);
+            if (!shardOwnership.ownsPortfolio(portfolioId)) {
+                String held = portfolioId + ":" + symbol;
+                if (position.getHoldings() != null && position.getHoldings() > 0) {
+                    outgoing.remove(held + CLOSED);
+                    outgoing.add(held);
+                } else {
+                    outgoing.remove(held);
+                    outgoing.add(held + CLOSED);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the portfolios affected since the previous call. Called once per
+     * refresh cycle by the scheduler thread.
+     */
+    public PortfolioChangeSet nextCycle() {
+        exchangeSharedChanges();
+
+        if (cycle.getAndIncrement() % Math.max(fullSweepEvery, 1) == 0) {
+            rebuildIndex();
+            dirtyPortfolios.clear();
+            consumedPriceVersions.putAll(priceVersions);
+            log.info("Full sweep cycle, recomputing all portfolios.");
+            return PortfolioChangeSet.all();
+        }
+
+        Set<UUID> affected = new HashSet<>();
+
+        Iterator<UUID> dirty = dirtyPortfolios.iterator();
+        while (dirty.hasNext()) {
+            affected.add(dirty.next());
+            dirty.remove();
+        }
+
+        int movedSymbols = 0;
+        for (Map.Entry<String, Long> version : priceVersions.entrySet()) {
+            Long consumed = consumedPriceVersions.put(version.getKey(), version.getValue());
+            if (consumed == null || consumed < version.getValue()) {
+                movedSymbols++;
+                Set<UUID> holders = holdersBySymbol.get(version.getKey());
+                if (holders != null) {
+                    affected.addAll(holders);
+                }
+            }
+        }
+
+        log.info("{} symbols moved, {} portfolios affected this cycle.", movedSymbols, affected.size());
+        return PortfolioChangeSet.of(affected);
+    }
+
+    private void exchangeSharedChanges() {
+        Map<Integer, List<String>> byShard = new HashMap<>();
+        Iterator<String> it = outgoing.iterator();
+        while (it.hasNext()) {
+            String member = it.next();
+            it.remove();
+            UUID portfolioId = UUID.fromString(member.substring(0, UUID_LENGTH));
+            byShard.computeIfAbsent(shardOwnership.shardOf(portfolioId), shard -> new ArrayList<>()).add(member);
+        }
+
+        try {
+            changedPortfolioStore.add(byShard);
+
+            // Closes are applied first: when a position was closed and reopened between two drains,
+            // keeping the holder costs a recompute, losing it would miss price moves until the sweep.
+            List<String> held = new ArrayList<>();
+            for (String member : changedPortfolioStore.drain(shardOwnership.processedShards())) {
+                UUID portfolioId = UUID.fromString(member.substring(0, UUID_LENGTH));
+                if (member.endsWith(CLOSED)) {
+                    Set<UUID> holders = holdersBySymbol.get(
+                            member.substring(UUID_LENGTH + 1, member.length() - CLOSED.length()));
+                    if (holders != null) {
+                        holders.remove(portfolioId);
+                    }
+                } else if (member.length() > UUID_LENGTH) {
+                    held.add(member);
+                }
+                dirtyPortfolios.add(portfolioId);
+            }
+            for (String member : held) {
+                holdersBySymbol.computeIfAbsent(member.substring(UUID_LENGTH + 1),
+                        s -> ConcurrentHashMap.newKeySet()).add(UUID.fromString(member.substring(0, UUID_LENGTH)));
+            }
+        } catch (RuntimeException ex) {
+            // the next full sweep covers anything not handed over
+            log.warn("Could not exchange changed portfolios through Redis: {}", ex.getMessage());
+        }
+    }
+
+    private void rebuildIndex() {
+        Map<String, Set<UUID>> rebuilt = new ConcurrentHashMap<>();
+        for (AnalysisKey key : analysisDao.findAllHeldKeys()) {
+            rebuilt.computeIfAbsent(key.getSymbol(), s -> ConcurrentHashMap.newKeySet()).add(key.getPortfolioId());
+        }
+
+        holdersBySymbol.keySet().retainAll(rebuilt.keySet());
+        holdersBySymbol.putAll(rebuilt);
+    }
+}
@@ -0,0 +1,523 @@
+package com.pms.analytics.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.pms.analytics.config.SessionOrderedTaskExecutor;
+import com.pms.analytics.dao.entity.AnalysisEntity;
+import com.pms.analytics.dto.PositionDeltaDto;
+import com.pms.analytics.dto.PositionUpdateDto;
+import com.pms.analytics.dto.RiskEventDto;
+import com.pms.analytics.dto.RiskEventOuterClass.RiskEvent;
+import com.pms.analytics.dto.UnrealizedPnlDto;
+import com.pms.analytics.dto.LiveUpdate.LiveUpdateBatch;
+import com.pms.analytics.dto.LiveUpdate.PositionUpdate;
+import com.pms.analytics.dto.LiveUpdate.UnrealizedPnlUpdate;
+import com.pms.analytics.externalRedis.RedisLiveUpdateRelay;
+import com.pms.analytics.mapper.LiveUpdateMapper;
+import com.pms.analytics.mapper.RiskEventMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes position, unrealized PnL and risk updates to per-portfolio destinations
+ * ({@code <topic>/<portfolioId>}). Updates are coalesced per portfolio over
+ * {@code websocket.coalesce-ms}; each flush sends only the fields that changed
+ * since the previous one, and only to destinations with subscribers. The
+ * last-sent baseline is kept only while a destination has subscribers.
+ *
+ * <p>While a subscriber of a destination has more than
+ * {@code websocket.conflation.session-backlog} messages waiting, updates for
+ * that destination are held back for up to {@code max-defer-ms}: they keep
+ * merging per portfolio, so slow delivery conflates updates instead of
+ * queueing every intermediate one.
+ *
+ * <p>A portfolio is computed on one instance only, so with the relay enabled
+ * the full values computed locally during a tick are published to Redis as one
+ * batch; every other instance merges them into its own pending updates and
+ * delivers them to its local subscribers on its next flush. Only portfolios
+ * with live viewers somewhere ({@link WatchedPortfolios}) are relayed.
+ *
+ * <p>Every update, local or relayed, is also recorded in the
+ * {@link LatestValueStore} used for subscribe-time snapshots.
+ */
+@Service
+@Slf4j
+public class PortfolioUpdatePublisher {
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private StompSubscriptionRegistry subscriptions;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RedisLiveUpdateRelay relay;
+
+    @Autowired
+    private ShardOwnershipService shardOwnership;
+
+    @Autowired
+    private LatestValueStore latestValues;
+
+    @Autowired
+    private WatchedPortfolios watchedPortfolios;
+
+    @Autowired
+    @Qualifier("clientInboundChannelExecutor")
+    private ThreadPoolTaskExecutor inboundExecutor;
+
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private SessionOrderedTaskExecutor outboundExecutor;
+
+    @Value("${websocket.topics.position-update}")
+    private String positionUpdateTopic;
+
+    @Value("${websocket.topics.unrealized-pnl}")
+    private String unrealizedPnlTopic;
+
+    @Value("${websocket.topics.risk-metrics}")
+    private String riskMetricsTopic;
+
+    // Also broadcast full payloads on the shared topics for clients not yet on per-portfolio destinations.
+    @Value("${websocket.legacy-global-topics:false}")
+    private boolean legacyGlobalTopics;
+
+    // Protobuf frames go to <destination><suffix> for clients subscribed there.
+    @Value("${websocket.binary-frames.enabled:false}")
+    private boolean binaryFrames;
+
+    @Value("${websocket.binary-frames.suffix:/bin}")
+    private String binarySuffix;
+
+    @Value("${websocket.relay.enabled:true}")
+    private boolean relayEnabled;
+
+    @Value("${websocket.conflation.session-backlog:50}")
+    private int sessionBacklogLimit;
+
+    @Value("${websocket.conflation.max-defer-ms:5000}")
+    private long maxDeferMs;
+
+    // Latest full values per portfolio awaiting delivery to local subscribers.
+    private final Map<UUID, Map<String, PositionDeltaDto>> pendingPositions = new ConcurrentHashMap<>();
+    private final Map<UUID, UnrealizedPnlDto> pendingUnrealized = new ConcurrentHashMap<>();
+    private final Map<UUID, RiskEventDto> pendingRisk = new ConcurrentHashMap<>();
+
+    // Locally computed values awaiting the next relay batch.
+    private final Map<UUID, Map<String, PositionDeltaDto>> relayPositions = new ConcurrentHashMap<>();
+    private final Map<UUID, UnrealizedPnlDto> relayUnrealized = new ConcurrentHashMap<>();
+    private final Map<UUID, RiskEventDto> relayRisk = new ConcurrentHashMap<>();
+
+    // Last state sent per subscribed portfolio; only touched by the flushing thread.
+    private final Map<UUID, Map<String, PositionDeltaDto>> sentPositions = new HashMap<>();
+    private final Map<UUID, UnrealizedPnlDto> sentUnrealized = new HashMap<>();
+    private final Map<UUID, RiskEventDto> sentRisk = new HashMap<>();
+
+    // When each held-back destination was first deferred; only touched by the flushing thread.
+    private final Map<String, Long> deferredSinceMs = new HashMap<>();
+
+    private Counter sentUpdates;
+    private Counter conflatedUpdates;
+    private Counter unsubscribedUpdates;
+    private Counter deferredUpdates;
+    private Counter publishedBatches;
+    private Counter receivedBatches;
+
+    @PostConstruct
+    public void init() {
+        sentUpdates = Counter.builder("analytics.ws.updates").tag("result", "sent").register(meterRegistry);
+        conflatedUpdates = Counter.builder("analytics.ws.updates").tag("result", "conflated").register(meterRegistry);
+        unsubscribedUpdates = Counter.builder("analytics.ws.updates").tag("result", "unsubscribed").register(meterRegistry);
+        deferredUpdates = Counter.builder("analytics.ws.updates").tag("result", "deferred").register(meterRegistry);
+        publishedBatches = Counter.builder("analytics.ws.relay.batches").tag("direction", "published").register(meterRegistry);
+        receivedBatches = Counter.builder("analytics.ws.relay.batches").tag("direction", "received").register(meterRegistry);
+
+        Gauge.builder("analytics.ws.channel.queue_depth", inboundExecutor, PortfolioUpdatePublisher::queueDepth)
+                .tag("channel", "inbound").register(meterRegistry);
+        Gauge.builder("analytics.ws.channel.queue_depth", outboundExecutor, SessionOrderedTaskExecutor::totalBacklog)
+                .tag("channel", "outbound").register(meterRegistry);
+
+        if (relayEnabled) {
+            relay.subscribe(this::onRelayedBatch);
+        }
+    }
+
+    public String positionDestination(UUID portfolioId) {
+        return positionUpdateTopic + "/" + portfolioId;
+    }
+
+    public String unrealizedDestination(UUID portfolioId) {
+        return unrealizedPnlTopic + "/" + portfolioId;
+    }
+
+    public String riskDestination(UUID portfolioId) {
+        return riskMetricsTopic + "/" + portfolioId;
+    }
+
+    // Fed by PostCommitNotificationStage off the ingest thread.
+    public void publishPositions(List<AnalysisEntity> committed) {
+        for (AnalysisEntity position : committed) {
+            UUID portfolioId = position.getId().getPortfolioId();
+            PositionDeltaDto value = new PositionDeltaDto(position.getId().getSymbol(), position.getHoldings(),
+                    position.getTotalInvested(), position.getRealizedPnl());
+
+            putPosition(portfolioId, value);
+            if (relayEnabled) {
+                mergePosition(relayPositions, portfolioId, value);
+            }
+        }
+
+        if (legacyGlobalTopics) {
+            send(positionUpdateTopic, committed);
+        }
+    }
+
+    public void publishUnrealized(UnrealizedPnlDto payload) {
+        UUID portfolioId = UUID.fromString(payload.getPortfolio_id());
+        putUnrealized(portfolioId, payload);
+        if (relayEnabled) {
+            relayUnrealized.put(portfolioId, payload);
+        }
+
+        if (legacyGlobalTopics) {
+            send(unrealizedPnlTopic, payload);
+        }
+    }
+
+    public void publishRisk(RiskEventDto payload) {
+        putRisk(payload);
+        if (relayEnabled) {
+            relayRisk.put(payload.getPortfolioId(), payload);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${websocket.coalesce-ms:250}")
+    public synchronized void flush() {
+        if (relayEnabled) {
+            relayLocalUpdates();
+        }
+
+        long now = System.currentTimeMillis();
+
+        // Keys are copied first: deferred updates go back into the maps being walked.
+        for (UUID portfolioId : List.copyOf(pendingPositions.keySet())) {
+            // Removed before reading; producers only write inside compute, so nothing lands in it afterwards.
+            Map<String, PositionDeltaDto> latest = pendingPositions.remove(portfolioId);
+            String destination = positionDestination(portfolioId);
+            if (latest == null) {
+                continue;
+            }
+            if (!isSubscribed(destination)) {
+                unsubscribedUpdates.increment();
+                continue;
+            }
+            if (defer(destination, now)) {
+                // Newer values that arrived meanwhile win.
+                pendingPositions.merge(portfolioId, latest, (newer, older) -> {
+                    older.putAll(newer);
+                    return older;
+                });
+                continue;
+            }
+
+            List<PositionDeltaDto> changes = positionChanges(portfolioId, latest.values());
+            if (!changes.isEmpty()) {
+                PositionUpdateDto update = new PositionUpdateDto(portfolioId.toString(), changes);
+                sendLive(destination, update, () -> LiveUpdateMapper.toProto(update));
+            }
+        }
+
+        for (UUID portfolioId : List.copyOf(pendingUnrealized.keySet())) {
+            UnrealizedPnlDto latest = pendingUnrealized.remove(portfolioId);
+            String destination = unrealizedDestination(portfolioId);
+            if (latest == null) {
+                continue;
+            }
+            if (!isSubscribed(destination)) {
+                unsubscribedUpdates.increment();
+                continue;
+            }
+            if (defer(destination, now)) {
+                pendingUnrealized.putIfAbsent(portfolioId, latest);
+                continue;
+            }
+
+            UnrealizedPnlDto changes = unrealizedChanges(portfolioId, latest);
+            if (changes != null) {
+                sendLive(destination, changes, () -> LiveUpdateMapper.toProto(changes));
+            }
+        }
+
+        // Risk is only a few values, so it is sent whole whenever it changes.
+        for (UUID portfolioId : List.copyOf(pendingRisk.keySet())) {
+            RiskEventDto latest = pendingRisk.remove(portfolioId);
+            String destination = riskDestination(portfolioId);
+            if (latest == null) {
+                continue;
+            }
+            if (!isSubscribed(destination)) {
+                unsubscribedUpdates.increment();
+                continue;
+            }
+            if (defer(destination, now)) {
+                pendingRisk.putIfAbsent(portfolioId, latest);
+                continue;
+            }
+
+            if (!latest.equals(sentRisk.put(portfolioId, latest))) {
+                sendLive(destination, latest, () -> RiskEventMapper.toProto(latest));
+            }
+        }
+
+        // Baselines of destinations whose last subscriber left; a returning subscriber starts from a snapshot.
+        sentPositions.keySet().removeIf(id -> !isSubscribed(positionDestination(id)));
+        sentUnrealized.keySet().removeIf(id -> !isSubscribed(unrealizedDestination(id)));
+        sentRisk.keySet().removeIf(id -> !isSubscribed(riskDestination(id)));
+        deferredSinceMs.keySet().removeIf(destination -> !isSubscribed(destination));
+    }
+
+    private void relayLocalUpdates() {
+        Set<UUID> watched = watchedPortfolios.current();
+
+        List<PositionUpdateDto> positions = new ArrayList<>();
+        for (UUID portfolioId : relayPositions.keySet()) {
+            Map<String, PositionDeltaDto> relayed = relayPositions.remove(portfolioId);
+            if (relayed != null && watched.contains(portfolioId)) {
+                positions.add(new PositionUpdateDto(portfolioId.toString(), new ArrayList<>(relayed.values())));
+            }
+        }
+
+        List<UnrealizedPnlDto> unrealized = new ArrayList<>();
+        for (UUID portfolioId : relayUnrealized.keySet()) {
+            UnrealizedPnlDto relayed = relayUnrealized.remove(portfolioId);
+            if (relayed != null && watched.contains(portfolioId)) {
+                unrealized.add(relayed);
+            }
+        }
+
+        List<RiskEventDto> risk = new ArrayList<>();
+        for (UUID portfolioId : relayRisk.keySet()) {
+            RiskEventDto relayed = relayRisk.remove(portfolioId);
+            if (relayed != null && watched.contains(portfolioId)) {
+                risk.add(relayed);
+            }
+        }
+
+        if (positions.isEmpty() && unrealized.isEmpty() && risk.isEmpty()) {
+            return;
+        }
+
+        try {
+            relay.publish(LiveUpdateMapper.toProto(shardOwnership.getInstanceId(), positions, unrealized, risk)
+                    .toByteArray());
+            publishedBatches.increment();
+        } catch (RuntimeException ex) {
+            log.warn("Failed relaying {} position, {} unrealized and {} risk updates: {}",
+                    positions.size(), unrealized.size(), risk.size(), ex.getMessage());
+        }
+    }
+
+    private void onRelayedBatch(byte[] body) {
+        LiveUpdateBatch batch;
+        try {
+            batch = LiveUpdateBatch.parseFrom(body);
+        } catch (InvalidProtocolBufferException ex) {
+            log.warn("Discarding malformed live update batch: {}", ex.getMessage());
+            return;
+        }
+
+        if (shardOwnership.getInstanceId().equals(batch.getOrigin())) {
+            return;
+        }
+        receivedBatches.increment();
+
+        for (PositionUpdate update : batch.getPositionsList()) {
+            UUID portfolioId = UUID.fromString(update.getPortfolioId());
+            LiveUpdateMapper.fromProto(update).getPositions()
+                    .forEach(position -> putPosition(portfolioId, position));
+        }
+        for (UnrealizedPnlUpdate update : batch.getUnrealizedList()) {
+            putUnrealized(UUID.fromString(update.getPortfolioId()), LiveUpdateMapper.fromProto(update));
+        }
+        for (RiskEvent update : batch.getRiskList()) {
+            putRisk(RiskEventMapper.fromProto(update));
+        }
+    }
+
+    private void putPosition(UUID portfolioId, PositionDeltaDto position) {
+        latestValues.putPosition(portfolioId, position);
+        if (mergePosition(pendingPositions, portfolioId, position)) {
+            conflatedUpdates.increment();
+        }
+    }
+
+    // Returns whether an earlier pending value for the symbol was replaced.
+    private static boolean mergePosition(Map<UUID, Map<String, PositionDeltaDto>> pending, UUID portfolioId,
+            PositionDeltaDto position) {
+        boolean[] replaced = new boolean[1];
+        pending.compute(portfolioId, (id, positions) -> {
+            Map<String, PositionDeltaDto> merged = positions != null ? positions : new HashMap<>();
+            replaced[0] = merged.put(position.getSymbol(), position) != null;
+            return merged;
+        });
+        return replaced[0];
+    }
+
+    private void putUnrealized(UUID portfolioId, UnrealizedPnlDto payload) {
+        latestValues.putUnrealized(portfolioId, payload);
+        if (pendingUnrealized.put(portfolioId, payload) != null) {
+            conflatedUpdates.increment();
+        }
+    }
+
+    private void putRisk(RiskEventDto payload) {
+        latestValues.putRisk(payload);
+        if (pendingRisk.put(payload.getPortfolioId(), payload) != null) {
+            conflatedUpdates.increment();
+        }
+    }
+
+    // Holds a destination back while one of its sessions is backed up, for at most max-defer-ms.
+    private boolean defer(String destination, long now) {
+        if (!backedUp(destination) && !(binaryFrames && backedUp(destination + binarySuffix))) {
+            deferredSinceMs.remove(destination);
+            return false;
+        }
+
+        long since = deferredSinceMs.computeIfAbsent(destination, d -> now);
+        if (now - since >= maxDeferMs) {
+            deferredSinceMs.remove(destination);
+            return false;
+        }
+        deferredUpdates.increment();
+        return true;
+    }
+
+    private boolean backedUp(String destination) {
+        for (String sessionId : subscriptions.sessions(destination)) {
+            if (outboundExecutor.backlog(sessionId) > sessionBacklogLimit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSubscribed(String destination) {
+        return subscriptions.hasSubscribers(destination)
+                || binaryFrames && subscriptions.hasSubscribers(destination + binarySuffix);
+    }
+
+    private void sendLive(String destination, Object payload, Supplier<MessageLite> binary) {
+        boolean delivered = false;
+
+        if (subscriptions.hasSubscribers(destination)) {
+            send(destination, payload);
+            delivered = true;
+        }
+
+        String binaryDestination = destination + binarySuffix;
+        if (binaryFrames && subscriptions.hasSubscribers(binaryDestination)) {
+            try {
+                messagingTemplate.convertAndSend(binaryDestination, binary.get().toByteArray(),
+                        Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM));
+                delivered = true;
+            } catch (RuntimeException ex) {
+                log.error("Failed sending update to {}", binaryDestination, ex);
+            }
+        }
+
+        (delivered ? sentUpdates : unsubscribedUpdates).increment();
+    }
+
+    private List<PositionDeltaDto> positionChanges(UUID portfolioId, Iterable<PositionDeltaDto> latest) {
+        Map<String, PositionDeltaDto> sent = sentPositions.computeIfAbsent(portfolioId, id -> new HashMap<>());
+        List<PositionDeltaDto> changes = new ArrayList<>();
+
+        for (PositionDeltaDto position : latest) {
+            String symbol = position.getSymbol();
+            PositionDeltaDto previous = sent.get(symbol);
+
+            PositionDeltaDto delta = new PositionDeltaDto(symbol,
+                    previous == null || !Objects.equals(previous.getHoldings(), position.getHoldings())
+                            ? position.getHoldings() : null,
+                    previous == null || !sameValue(previous.getTotalInvested(), position.getTotalInvested())
+                            ? position.getTotalInvested() : null,
+                    previous == null || !sameValue(previous.getRealizedPnl(), position.getRealizedPnl())
+                            ? position.getRealizedPnl() : null);
+
+            if (delta.getHoldings() != null || delta.getTotalInvested() != null || delta.getRealizedPnl() != null) {
+                changes.add(delta);
+                sent.put(symbol, position);
+            }
+        }
+        return changes;
+    }
+
+    private UnrealizedPnlDto unrealizedChanges(UUID portfolioId, UnrealizedPnlDto latest) {
+        UnrealizedPnlDto sent = sentUnrealized.put(portfolioId, latest);
+        if (sent == null) {
+            return latest;
+        }
+
+        Map<String, BigDecimal> changed = new HashMap<>();
+        latest.getSymbol().forEach((symbol, value) -> {
+            if (!sameValue(sent.getSymbol().get(symbol), value)) {
+                changed.put(symbol, value);
+            }
+        });
+        // symbols no longer open report zero once
+        sent.getSymbol().keySet().stream()
+                .filter(symbol -> !latest.getSymbol().containsKey(symbol))
+                .forEach(symbol -> changed.put(symbol, BigDecimal.ZERO));
+
+        if (changed.isEmpty() && sameValue(sent.getOverallUnrealised_Pnl(), latest.getOverallUnrealised_Pnl())) {
+            return null;
+        }
+        return new UnrealizedPnlDto(changed, latest.getOverallUnrealised_Pnl(), latest.getPortfolio_id());
+    }
+
+    private void send(String destination, Object payload) {
+        try {
+            messagingTemplate.convertAndSend(destination, payload);
+        } catch (RuntimeException ex) {
+            log.error("Failed sending update to {}", destination, ex);
+        }
+    }
+
+    private static boolean sameValue(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private static double queueDepth(ThreadPoolTaskExecutor executor) {
+        return executor.getThreadPoolExecutor().getQueue().size();
+    }
+}
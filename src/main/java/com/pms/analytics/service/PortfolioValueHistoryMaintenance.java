@@ -0,0 +1,112 @@
+package com.pms.analytics.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pms.analytics.dao.PortfolioValueHistoryPartitionDao;
+import com.pms.analytics.dao.PortfolioValueRollupDao;
+import com.pms.analytics.dao.PortfolioValueRollupDao.Tier;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the portfolio value history partitioned by month: converts the legacy
+ * heap table once, creates partitions ahead of time, swaps b-tree indexes for
+ * BRIN as partitions age, and refreshes the weekly/monthly rollup tiers.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PortfolioValueHistoryMaintenance {
+
+    private final PortfolioValueHistoryPartitionDao partitionDao;
+    private final PortfolioValueRollupDao rollupDao;
+    private final DataVersion dataVersion;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${history.partitioning.enabled:true}")
+    private boolean partitioningEnabled;
+
+    @Value("${history.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${history.partitioning.recent-months:3}")
+    private int recentMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            maintainPartitions();
+            rollupDao.createTable();
+            refreshRollups();
+        } catch (RuntimeException ex) {
+            log.error("Portfolio value history maintenance failed on startup: {}", ex.getMessage(), ex);
+        }
+    }
+
+    @Scheduled(cron = "${history.partitioning.cron:0 0 1 * * *}")
+    public void maintainPartitions() {
+        if (!partitioningEnabled) {
+            return;
+        }
+
+        // one instance at a time; the others wait and then find the work done
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            partitionDao.lockDdl();
+            maintainPartitionsLocked();
+        });
+
+        long unpartitioned = partitionDao.countDefaultRows();
+        if (unpartitioned > 0) {
+            log.warn("{} portfolio value rows fall outside every monthly partition and sit in the default partition.",
+                    unpartitioned);
+        }
+    }
+
+    private void maintainPartitionsLocked() {
+        YearMonth current = YearMonth.now();
+        YearMonth lastMonth = current.plusMonths(monthsAhead);
+
+        if (!partitionDao.exists()) {
+            partitionDao.createPartitionedTable();
+        } else if (!partitionDao.isPartitioned()) {
+            log.info("Converting {} to a monthly partitioned table.", PortfolioValueHistoryPartitionDao.TABLE);
+            partitionDao.migrateToPartitioned(lastMonth);
+        } else {
+            partitionDao.createDefaultPartition();
+        }
+
+        for (YearMonth month = current; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+            partitionDao.createPartition(month);
+        }
+
+        YearMonth recentFrom = current.minusMonths(recentMonths - 1L);
+        for (YearMonth month : partitionDao.listPartitions()) {
+            if (month.isBefore(recentFrom)) {
+                partitionDao.indexAsArchived(month);
+            } else {
+                partitionDao.indexAsRecent(month);
+            }
+        }
+    }
+
+    @Scheduled(cron = "${history.rollup.cron:0 30 0 * * *}")
+    public void refreshRollups() {
+        for (Tier tier : Tier.values()) {
+            // The latest bucket may still be open, so it is recomputed each run.
+            LocalDate from = rollupDao.lastBucketStart(tier);
+            int rows = rollupDao.refresh(tier, from);
+            log.info("Refreshed {} {} rollup buckets from {}.", rows, tier, from != null ? from : "the beginning");
+        }
+        dataVersion.bump();
+    }
+}
@@ -0,0 +1,88 @@
+package com.pms.analytics.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import com.pms.analytics.dao.PortfolioValueJdbcDao;
+import com.pms.analytics.dao.PortfolioValueRollupDao;
+import com.pms.analytics.dao.PortfolioValueRollupDao.Tier;
+import com.pms.analytics.dto.PortfolioValueSeriesDto;
+import com.pms.analytics.utilities.Lttb;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Portfolio value series for charts. Long ranges read the weekly or monthly
+ * rollup tier instead of every daily row, and the result is downsampled with
+ * LTTB to at most the requested number of points.
+ */
+@Service
+@RequiredArgsConstructor
+public class PortfolioValueSeriesService {
+
+    private final PortfolioValueJdbcDao portfolioValueDao;
+    private final PortfolioValueRollupDao rollupDao;
+
+    // A tier is used when it still yields this many times the requested points.
+    @Value("${api.history.tier-oversampling:4}")
+    private int tierOversampling;
+
+    @Value("${api.history.max-points:2000}")
+    private int maxPoints;
+
+    public PortfolioValueSeriesDto series(UUID portfolioId, LocalDate from, LocalDate to, int points) {
+        int target = Math.max(3, Math.min(points, maxPoints));
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+
+        Series raw = new Series();
+        String resolution;
+        if (days <= (long) target * tierOversampling) {
+            resolution = "DAY";
+            portfolioValueDao.findDailyValues(portfolioId, from, to, raw);
+        } else if (days / 7 <= (long) target * tierOversampling) {
+            resolution = Tier.WEEK.name();
+            rollupDao.findCloseValues(portfolioId, Tier.WEEK, from, to, raw);
+        } else {
+            resolution = Tier.MONTH.name();
+            rollupDao.findCloseValues(portfolioId, Tier.MONTH, from, to, raw);
+        }
+
+        int[] keep = Lttb.select(raw.epochDays, raw.values, raw.size, target);
+
+        List<LocalDate> dates = new ArrayList<>(keep.length);
+        double[] values = new double[keep.length];
+        for (int i = 0; i < keep.length; i++) {
+            dates.add(LocalDate.ofEpochDay(raw.epochDays[keep[i]]));
+            values[i] = raw.values[keep[i]];
+        }
+
+        return new PortfolioValueSeriesDto(portfolioId, resolution, dates, values);
+    }
+
+    private static final class Series implements RowCallbackHandler {
+        private long[] epochDays = new long[256];
+        private double[] values = new double[256];
+        private int size;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            if (size == epochDays.length) {
+                epochDays = Arrays.copyOf(epochDays, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            epochDays[size] = rs.getObject("date", LocalDate.class).toEpochDay();
+            values[size] = rs.getDouble("value");
+            size++;
+        }
+    }
+}
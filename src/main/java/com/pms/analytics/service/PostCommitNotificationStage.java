@@ -0,0 +1,171 @@
+package com.pms.analytics.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.pms.analytics.dao.entity.AnalysisEntity;
+import com.pms.analytics.dao.entity.AnalysisEntity.AnalysisKey;
+import com.pms.analytics.event.PositionsCommittedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hands committed position batches from the ingest thread to a dedicated
+ * worker that feeds the WebSocket publisher, so the commit path only pays for
+ * an enqueue. The ring is bounded; when it is full the oldest batch is either
+ * folded into a per-position overflow map (CONFLATE, lossless because batches
+ * carry absolute values) or discarded (DROP_OLDEST).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PostCommitNotificationStage {
+
+    public enum OverflowPolicy { CONFLATE, DROP_OLDEST }
+
+    private final PortfolioUpdatePublisher updatePublisher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notification.capacity:1024}")
+    private int capacity;
+
+    @Value("${notification.overflow-policy:CONFLATE}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${notification.max-drain-batches:256}")
+    private int maxDrainBatches;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private List<AnalysisEntity>[] ring;
+    private int head = 0;
+    private int size = 0;
+
+    // Positions folded out of the ring on overflow; always older than anything still in it.
+    private final Map<AnalysisKey, AnalysisEntity> overflow = new LinkedHashMap<>();
+
+    private volatile boolean running = true;
+    private Thread worker;
+
+    private Counter enqueued;
+    private Counter conflated;
+    private Counter dropped;
+
+    @PostConstruct
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void init() {
+        ring = new List[Math.max(capacity, 1)];
+
+        enqueued = Counter.builder("analytics.notify.batches").tag("result", "enqueued").register(meterRegistry);
+        conflated = Counter.builder("analytics.notify.batches").tag("result", "conflated").register(meterRegistry);
+        dropped = Counter.builder("analytics.notify.batches").tag("result", "dropped").register(meterRegistry);
+        Gauge.builder("analytics.notify.queue_depth", this, PostCommitNotificationStage::depth).register(meterRegistry);
+
+        worker = Thread.ofPlatform().name("post-commit-notifier").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPositionsCommitted(PositionsCommittedEvent event) {
+        if (event.positions().isEmpty()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (size == ring.length) {
+                List<AnalysisEntity> oldest = ring[head];
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+
+                if (overflowPolicy == OverflowPolicy.CONFLATE) {
+                    oldest.forEach(position -> overflow.put(position.getId(), position));
+                    conflated.increment();
+                } else {
+                    dropped.increment();
+                }
+            }
+
+            ring[(head + size) % ring.length] = event.positions();
+            size++;
+            enqueued.increment();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            List<AnalysisEntity> positions;
+            try {
+                positions = take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            try {
+                updatePublisher.publishPositions(positions);
+            } catch (RuntimeException ex) {
+                log.error("Failed publishing {} committed positions: {}", positions.size(), ex.getMessage(), ex);
+            }
+        }
+    }
+
+    // Waits for work, then takes the overflow and up to maxDrainBatches ring entries as one batch.
+    private List<AnalysisEntity> take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (size == 0 && overflow.isEmpty()) {
+                notEmpty.await();
+            }
+
+            List<AnalysisEntity> positions = new ArrayList<>(overflow.values());
+            overflow.clear();
+
+            for (int taken = 0; size > 0 && taken < maxDrainBatches; taken++) {
+                positions.addAll(ring[head]);
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+            }
+            return positions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double depth() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.pms.analytics.service;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable view of all prices for one analytics cycle. Prices are held as
+ * unscaled longs and scales indexed through a symbol dictionary, so a
+ * snapshot of thousands of symbols is a handful of arrays.
+ */
+public final class PriceSnapshot {
+
+    private static final PriceSnapshot EMPTY = new PriceSnapshot(0L, 0L, Map.of());
+
+    private final long version;
+    private final long capturedAtMs;
+    private final Map<String, Integer> index;
+    private final long[] unscaled;
+    private final int[] scales;
+
+    private PriceSnapshot(long version, long capturedAtMs, Map<String, BigDecimal> prices) {
+        this.version = version;
+        this.capturedAtMs = capturedAtMs;
+
+        Map<String, Integer> dictionary = new HashMap<>(prices.size() * 2);
+        this.unscaled = new long[prices.size()];
+        this.scales = new int[prices.size()];
+
+        int i = 0;
+        for (Map.Entry<String, BigDecimal> entry : prices.entrySet()) {
+            BigDecimal price = entry.getValue().stripTrailingZeros();
+            if (price.scale() < 0) {
+                price = price.setScale(0);
+            }
+            dictionary.put(entry.getKey(), i);
+            unscaled[i] = price.unscaledValue().longValueExact();
+            scales[i] = price.scale();
+            i++;
+        }
+        this.index = Collections.unmodifiableMap(dictionary);
+    }
+
+    public static PriceSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static PriceSnapshot of(long version, long capturedAtMs, Map<String, BigDecimal> prices) {
+        return new PriceSnapshot(version, capturedAtMs, prices);
+    }
+
+    public BigDecimal price(String symbol) {
+        Integer i = index.get(symbol);
+        return i != null ? BigDecimal.valueOf(unscaled[i], scales[i]) : null;
+    }
+
+    public BigDecimal priceOrZero(String symbol) {
+        BigDecimal price = price(symbol);
+        return price != null ? price : BigDecimal.ZERO;
+    }
+
+    public boolean contains(String symbol) {
+        return index.containsKey(symbol);
+    }
+
+    public Set<String> symbols() {
+        return index.keySet();
+    }
+
+    public Map<String, BigDecimal> asMap() {
+        Map<String, BigDecimal> prices = new HashMap<>(index.size() * 2);
+        index.forEach((symbol, i) -> prices.put(symbol, BigDecimal.valueOf(unscaled[i], scales[i])));
+        return prices;
+    }
+
+    public int size() {
+        return unscaled.length;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getCapturedAtMs() {
+        return capturedAtMs;
+    }
+}
@@ -0,0 +1,45 @@
+package com.pms.analytics.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.stereotype.Service;
+
+import com.pms.analytics.externalRedis.RedisPriceCache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PriceSnapshotService {
+
+    private final RedisPriceCache priceCache;
+
+    private final AtomicReference<PriceSnapshot> current = new AtomicReference<>(PriceSnapshot.empty());
+
+    /**
+     * Captures a new snapshot from one bulk read of the price hash and publishes it.
+     * Symbols that disappeared from Redis keep their last known price.
+     */
+    public synchronized PriceSnapshot capture() {
+        PriceSnapshot previous = current.get();
+
+        Map<String, BigDecimal> prices = previous.asMap();
+        prices.putAll(priceCache.getAllPrices());
+
+        PriceSnapshot snapshot = PriceSnapshot.of(previous.getVersion() + 1, System.currentTimeMillis(), prices);
+        current.set(snapshot);
+
+        log.info("Captured price snapshot v{} with {} symbols.", snapshot.getVersion(), snapshot.size());
+        return snapshot;
+    }
+
+    // Latest published snapshot, capturing the first one on demand
+    public PriceSnapshot current() {
+        PriceSnapshot snapshot = current.get();
+        return snapshot.getVersion() > 0 ? snapshot : capture();
+    }
+}
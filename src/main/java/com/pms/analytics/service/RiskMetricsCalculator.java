@@ -1,6 +1,7 @@
 package com.pms.analytics.service;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -22,13 +23,22 @@ public class RiskMetricsCalculator {
     private final AnalysisDao analysisDao;
     private final RiskMetricsService riskMetricsService;
     private final AnalysisOutboxDao analysisOutboxDao;
+    private final ShardOwnershipService shardOwnership;
+    private final PriceSnapshotService priceSnapshots;
     
 
     public void computeRiskMetricsForAllPortfolios() {
-        // Fetch all portfolio IDs from AnalysisDao
-        List<UUID> portfolioIds = analysisDao.findAll().stream()
-                .map(a -> a.getId().getPortfolioId())
-                .distinct()
+        computeRiskMetricsForAllPortfolios(PortfolioChangeSet.all(), priceSnapshots.current());
+    }
+
+    public void computeRiskMetricsForAllPortfolios(PortfolioChangeSet changes, PriceSnapshot snapshot) {
+        // Fetch portfolio IDs from AnalysisDao only on a full sweep
+        Collection<UUID> candidates = changes.fullSweep()
+                ? analysisDao.findAllPortfolioIds()
+                : changes.portfolioIds();
+
+        List<UUID> portfolioIds = candidates.stream()
+                .filter(shardOwnership::shouldProcess)
                 .collect(Collectors.toList());
 
         if (portfolioIds.isEmpty()) {
@@ -43,7 +53,7 @@ public class RiskMetricsCalculator {
         // Compute risk metrics for each portfolio
         for(UUID portfolioId : portfolioIds)
         {
-            riskMetricsService.computeRiskForSinglePortfolio(portfolioId, batchedOutboxEntries);
+            riskMetricsService.computeRiskForSinglePortfolio(portfolioId, batchedOutboxEntries, snapshot);
         };
 
         //save as batch here in outbox
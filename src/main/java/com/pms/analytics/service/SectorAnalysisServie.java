@@ -3,16 +3,12 @@ package com.pms.analytics.service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 
 import com.pms.analytics.dao.AnalysisDao;
-import com.pms.analytics.dao.StockDao;
-import com.pms.analytics.dao.entity.StockEntity;
 import com.pms.analytics.dto.SectorCatalogDto;
 import com.pms.analytics.dto.SectorMetricsDto;
 import com.pms.analytics.dto.SymbolMetricsDto;
@@ -24,21 +20,34 @@ import lombok.RequiredArgsConstructor;
 public class SectorAnalysisServie {
 
     private final AnalysisDao analysisDao;
-    private final StockDao stockDao;
+    private final SectorCatalog sectorCatalog;
+    private final SectorRollupIndex sectorRollups;
 
     public List<SectorMetricsDto> overallSectorAnalysis() {
+        if (sectorRollups.isReady()) {
+            return sectorRollups.overallSectors();
+        }
+
         List<SectorMetricsDto> sectors = analysisDao.overallSectorAnalysis();
         calculateSectorPercentage(sectors);
         return sectors;
     }
 
     public List<SymbolMetricsDto> sectorWiseAnalysis(String sector) {
+        if (sectorRollups.isReady()) {
+            return sectorRollups.overallSymbols(sector);
+        }
+
         List<SymbolMetricsDto> symbols = analysisDao.sectorWiseAnalysis(sector);
         calculateSymbolPercentage(symbols);
         return symbols;
     }
 
     public List<SectorMetricsDto> portfolioSectorAnalysis(UUID portfolioId) {
+        if (sectorRollups.isReady()) {
+            return sectorRollups.portfolioSectors(portfolioId);
+        }
+
         List<SectorMetricsDto> sectors =
                 analysisDao.portfolioSectorAnalysis(portfolioId);
 
@@ -50,6 +59,10 @@ public class SectorAnalysisServie {
             UUID portfolioId,
             String sector
     ) {
+        if (sectorRollups.isReady()) {
+            return sectorRollups.portfolioSymbols(portfolioId, sector);
+        }
+
         List<SymbolMetricsDto> symbols =
                 analysisDao.sectorWisePortfolioAnalysis(portfolioId, sector);
 
@@ -58,22 +71,7 @@ public class SectorAnalysisServie {
     }
 
     public List<SectorCatalogDto> sectorCatalog() {
-
-        Map<String, List<String>> sectorMap =
-                stockDao.findAll()
-                        .stream()
-                        .collect(Collectors.groupingBy(
-                                StockEntity::getSectorName,
-                                Collectors.mapping(
-                                        StockEntity::getSymbol,
-                                        Collectors.toList()
-                                )
-                        ));
-
-        return sectorMap.entrySet()
-                .stream()
-                .map(e -> new SectorCatalogDto(e.getKey(), e.getValue()))
-                .toList();
+        return sectorCatalog.current().sectors();
     }
 
     private void calculateSectorPercentage(List<SectorMetricsDto> sectors) {
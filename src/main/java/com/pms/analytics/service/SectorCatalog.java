@@ -0,0 +1,130 @@
+package com.pms.analytics.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pms.analytics.dao.StockDao;
+import com.pms.analytics.dao.entity.StockEntity;
+import com.pms.analytics.dto.CatalogVersionDto;
+import com.pms.analytics.dto.SectorCatalogDto;
+import com.pms.analytics.event.SectorCatalogChangedEvent;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Immutable symbol-to-sector catalog loaded from pms_stocks. A cheap count and
+ * max(updated_at) probe decides whether a reload is needed; readers always see
+ * a complete snapshot.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SectorCatalog {
+
+    private final StockDao stockDao;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // Listeners build from the catalog on startup, so the first load is not announced.
+    @PostConstruct
+    public void init() {
+        try {
+            reload(false);
+        } catch (RuntimeException ex) {
+            log.error("Initial sector catalog load failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.refresh-ms:60000}", initialDelayString = "${catalog.refresh-ms:60000}")
+    public void refresh() {
+        reload(true);
+    }
+
+    private synchronized void reload(boolean announce) {
+        CatalogVersionDto version = stockDao.catalogVersion();
+        if (version.equals(snapshot.version())) {
+            return;
+        }
+
+        Snapshot loaded = load(version);
+        snapshot = loaded;
+        log.info("Sector catalog loaded: {} symbols in {} sectors.", loaded.sectorBySymbol().size(), loaded.sectors().size());
+
+        if (announce) {
+            eventPublisher.publishEvent(new SectorCatalogChangedEvent(loaded));
+        }
+    }
+
+    public Snapshot current() {
+        return snapshot;
+    }
+
+    public boolean isLoaded() {
+        return snapshot != Snapshot.EMPTY;
+    }
+
+    public String sectorOf(String symbol) {
+        return snapshot.sectorBySymbol().get(symbol);
+    }
+
+    /**
+     * Canonical instance of a known symbol, so long-lived maps keyed by symbol
+     * share one String per symbol. Unknown symbols are returned as given.
+     */
+    public String intern(String symbol) {
+        String canonical = snapshot.symbols().get(symbol);
+        return canonical != null ? canonical : symbol;
+    }
+
+    private Snapshot load(CatalogVersionDto version) {
+        Map<String, String> symbols = new HashMap<>();
+        Map<String, String> sectorBySymbol = new HashMap<>();
+        Map<String, List<String>> bySector = new TreeMap<>();
+
+        for (StockEntity stock : stockDao.findAll()) {
+            String symbol = symbols.computeIfAbsent(stock.getSymbol(), s -> s);
+            String sector = stock.getSectorName().intern();
+            sectorBySymbol.put(symbol, sector);
+            bySector.computeIfAbsent(sector, s -> new ArrayList<>()).add(symbol);
+        }
+
+        List<SectorCatalogDto> sectors = bySector.entrySet().stream()
+                .map(e -> new SectorCatalogDto(e.getKey(), e.getValue().stream().sorted().toList()))
+                .toList();
+
+        try {
+            return new Snapshot(version, Map.copyOf(symbols), Map.copyOf(sectorBySymbol), sectors,
+                    objectMapper.writeValueAsBytes(sectors));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize sector catalog", ex);
+        }
+    }
+
+    public record Snapshot(
+            CatalogVersionDto version,
+            Map<String, String> symbols,
+            Map<String, String> sectorBySymbol,
+            List<SectorCatalogDto> sectors,
+            byte[] json) {
+
+        static final Snapshot EMPTY = new Snapshot(null, Map.of(), Map.of(), List.of(), "[]".getBytes());
+
+        public String etag() {
+            return "\"catalog-" + Integer.toHexString(Objects.hashCode(version)) + "\"";
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.pms.analytics.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.pms.analytics.dao.AnalysisDao;
+import com.pms.analytics.dao.AnalysisJdbcDao;
+import com.pms.analytics.dao.entity.AnalysisEntity;
+import com.pms.analytics.dao.entity.AnalysisEntity.AnalysisKey;
+import com.pms.analytics.dto.SectorMetricsDto;
+import com.pms.analytics.dto.SymbolMetricsDto;
+import com.pms.analytics.event.PositionsCommittedEvent;
+import com.pms.analytics.event.RemoteDataChangedEvent;
+import com.pms.analytics.event.SectorCatalogChangedEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory sector and symbol totals, overall and per portfolio, mirroring the
+ * JOIN pms_stocks ... GROUP BY queries in {@link AnalysisDao}. Committed batches
+ * carry absolute position values; the index keeps the last value per position
+ * and applies the difference, so replaying an already-seen position is a no-op.
+ * Batches ingested by other instances are read back by updated_at whenever the
+ * shared data version moves.
+ * Response lists are built once per change and served until the next one.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SectorRollupIndex {
+
+    private final AnalysisDao analysisDao;
+    private final SectorCatalog sectorCatalog;
+    private final DataVersion dataVersion;
+    private final AnalysisJdbcDao analysisJdbcDao;
+
+    // Covers transactions that committed after the last catch-up started, and clock skew between instances.
+    @Value("${sector-rollup.catch-up-overlap-ms:30000}")
+    private long catchUpOverlapMs;
+
+    private final Map<AnalysisKey, AnalysisEntity> positions = new HashMap<>();
+    private Map<String, String> sectorBySymbol = Map.of();
+
+    private Scope overall = new Scope();
+    private final Map<UUID, Scope> portfolios = new HashMap<>();
+
+    private volatile boolean ready = false;
+    private volatile LocalDateTime caughtUpTo;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            analysisJdbcDao.ensureUpdatedAtIndex();
+        } catch (RuntimeException ex) {
+            log.warn("Could not create the analytics updated_at index: {}", ex.getMessage());
+        }
+
+        try {
+            rebuild();
+        } catch (RuntimeException ex) {
+            log.error("Sector rollup rebuild failed, serving sector analysis from the DB: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Reloads every position from the DB. Holds the lock for the whole load so
+     * batches committed meanwhile are applied on top of the fresh state.
+     */
+    public synchronized void rebuild() {
+        ready = false;
+        if (!sectorCatalog.isLoaded()) {
+            // Built on the SectorCatalogChangedEvent of the first successful load.
+            log.warn("Sector catalog not loaded yet, serving sector analysis from the DB.");
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        sectorBySymbol = sectorCatalog.current().sectorBySymbol();
+
+        positions.clear();
+        portfolios.clear();
+        overall = new Scope();
+
+        List<AnalysisEntity> all = analysisDao.findAll();
+        all.forEach(this::apply);
+
+        caughtUpTo = startedAt;
+        ready = true;
+        log.info("Sector rollup index built from {} positions.", all.size());
+    }
+
+    @EventListener
+    public void onCatalogChanged(SectorCatalogChangedEvent event) {
+        rebuild();
+        dataVersion.bump();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public synchronized void onPositionsCommitted(PositionsCommittedEvent event) {
+        event.positions().forEach(this::apply);
+    }
+
+    /**
+     * Runs on the version poller before the new version is handed out, so a
+     * fresh ETag is never served with a view that misses the remote writes.
+     * A failed catch-up falls back to the DB until a rebuild succeeds.
+     */
+    @EventListener
+    public void onRemoteDataChanged(RemoteDataChangedEvent event) {
+        if (caughtUpTo == null) {
+            return;
+        }
+
+        try {
+            if (ready) {
+                catchUp();
+            } else {
+                rebuild();
+            }
+        } catch (RuntimeException ex) {
+            ready = false;
+            log.error("Sector rollup catch-up failed, serving sector analysis from the DB: {}", ex.getMessage(), ex);
+        }
+    }
+
+    private void catchUp() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<AnalysisEntity> changed = analysisJdbcDao.findUpdatedSince(
+                caughtUpTo.minus(Duration.ofMillis(catchUpOverlapMs)));
+
+        synchronized (this) {
+            // A replay rewrites the whole table and may have dropped positions.
+            if (changed.size() > positions.size() / 2) {
+                rebuild();
+                return;
+            }
+
+            changed.forEach(this::applyIfNewer);
+            caughtUpTo = startedAt;
+        }
+        log.debug("Sector rollup caught up on {} positions.", changed.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized List<SectorMetricsDto> overallSectors() {
+        return overall.sectorView();
+    }
+
+    public synchronized List<SymbolMetricsDto> overallSymbols(String sector) {
+        return overall.symbolView(sector);
+    }
+
+    public synchronized List<SectorMetricsDto> portfolioSectors(UUID portfolioId) {
+        Scope scope = portfolios.get(portfolioId);
+        return scope != null ? scope.sectorView() : List.of();
+    }
+
+    public synchronized List<SymbolMetricsDto> portfolioSymbols(UUID portfolioId, String sector) {
+        Scope scope = portfolios.get(portfolioId);
+        return scope != null ? scope.symbolView(sector) : List.of();
+    }
+
+    private void apply(AnalysisEntity position) {
+        AnalysisKey key = new AnalysisKey(
+                position.getId().getPortfolioId(), sectorCatalog.intern(position.getId().getSymbol()));
+        AnalysisEntity previous = positions.put(key, copyOf(key, position));
+
+        String sector = sectorBySymbol.get(key.getSymbol());
+        if (sector == null) {
+            return;
+        }
+
+        long holdings = orZero(position.getHoldings()) - (previous != null ? orZero(previous.getHoldings()) : 0);
+        BigDecimal invested = orZero(position.getTotalInvested())
+                .subtract(previous != null ? orZero(previous.getTotalInvested()) : BigDecimal.ZERO);
+        BigDecimal realized = orZero(position.getRealizedPnl())
+                .subtract(previous != null ? orZero(previous.getRealizedPnl()) : BigDecimal.ZERO);
+
+        overall.apply(sector, key.getSymbol(), holdings, invested, realized);
+        portfolios.computeIfAbsent(key.getPortfolioId(), id -> new Scope())
+                .apply(sector, key.getSymbol(), holdings, invested, realized);
+    }
+
+    private void applyIfNewer(AnalysisEntity position) {
+        AnalysisEntity known = positions.get(position.getId());
+        if (known != null && known.getUpdatedAt() != null && position.getUpdatedAt() != null
+                && !position.getUpdatedAt().isAfter(known.getUpdatedAt())) {
+            return;
+        }
+        apply(position);
+    }
+
+    private static AnalysisEntity copyOf(AnalysisKey key, AnalysisEntity position) {
+        return new AnalysisEntity(key, position.getHoldings(),
+                position.getTotalInvested(), position.getRealizedPnl(), null, position.getUpdatedAt());
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private static Double percentage(BigDecimal part, BigDecimal total) {
+        if (total.compareTo(BigDecimal.ZERO) == 0) {
+            return null;
+        }
+        return part.multiply(BigDecimal.valueOf(100))
+                .divide(total, 2, RoundingMode.HALF_UP)
+                .doubleValue();
+    }
+
+    private static final class Totals {
+        private long holdings;
+        private BigDecimal invested = BigDecimal.ZERO;
+        private BigDecimal realized = BigDecimal.ZERO;
+
+        private void add(long holdings, BigDecimal invested, BigDecimal realized) {
+            this.holdings += holdings;
+            this.invested = this.invested.add(invested);
+            this.realized = this.realized.add(realized);
+        }
+    }
+
+    private static final class Scope {
+        private final Map<String, Totals> sectors = new TreeMap<>();
+        private final Map<String, Map<String, Totals>> symbolsBySector = new HashMap<>();
+        private BigDecimal invested = BigDecimal.ZERO;
+
+        private List<SectorMetricsDto> sectorView;
+        private final Map<String, List<SymbolMetricsDto>> symbolViews = new HashMap<>();
+
+        private void apply(String sector, String symbol, long holdings, BigDecimal invested, BigDecimal realized) {
+            sectors.computeIfAbsent(sector, s -> new Totals()).add(holdings, invested, realized);
+            symbolsBySector.computeIfAbsent(sector, s -> new TreeMap<>())
+                    .computeIfAbsent(symbol, s -> new Totals())
+                    .add(holdings, invested, realized);
+            this.invested = this.invested.add(invested);
+
+            sectorView = null;
+            symbolViews.remove(sector);
+        }
+
+        private List<SectorMetricsDto> sectorView() {
+            if (sectorView == null) {
+                List<SectorMetricsDto> view = new ArrayList<>(sectors.size());
+                sectors.forEach((sector, totals) -> view.add(new SectorMetricsDto(
+                        sector, percentage(totals.invested, invested),
+                        totals.holdings, totals.invested, totals.realized)));
+                sectorView = List.copyOf(view);
+            }
+            return sectorView;
+        }
+
+        private List<SymbolMetricsDto> symbolView(String sector) {
+            Map<String, Totals> symbols = symbolsBySector.get(sector);
+            if (symbols == null) {
+                return List.of();
+            }
+
+            return symbolViews.computeIfAbsent(sector, s -> {
+                BigDecimal sectorInvested = sectors.get(s).invested;
+                List<SymbolMetricsDto> view = new ArrayList<>(symbols.size());
+                symbols.forEach((symbol, totals) -> view.add(new SymbolMetricsDto(
+                        symbol, percentage(totals.invested, sectorInvested),
+                        totals.holdings, totals.invested, totals.realized)));
+                return List.copyOf(view);
+            });
+        }
+    }
+}
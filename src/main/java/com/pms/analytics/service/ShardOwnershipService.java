@@ -0,0 +1,165 @@
+package com.pms.analytics.service;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pms.analytics.externalRedis.RedisShardLeaseStore;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Splits portfolios over a fixed number of virtual shards and leases those shards
+ * to the live analytics instances. Shard-to-instance assignment uses rendezvous
+ * hashing over the heartbeat membership, so a join or leave only moves the shards
+ * of that instance. While sharding is inactive (disabled or Redis unreachable)
+ * every instance falls back to processing all portfolios. Per-portfolio advisory
+ * locks are taken either way: an instance whose Redis calls fail cannot see the
+ * leases, so ownership alone does not exclude it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShardOwnershipService {
+
+    private final RedisShardLeaseStore leaseStore;
+
+    @Value("${sharding.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sharding.shard-count:64}")
+    private int shardCount;
+
+    @Value("${sharding.lease-ttl-ms:15000}")
+    private long leaseTtlMs;
+
+    private final String instanceId = System.getenv().getOrDefault("HOSTNAME", "analytics")
+            + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    private volatile BitSet ownedShards = new BitSet();
+    private volatile boolean active = false;
+
+    @Scheduled(fixedDelayString = "${sharding.heartbeat-ms:5000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            List<String> members = leaseStore.heartbeat(instanceId, System.currentTimeMillis(), leaseTtlMs);
+
+            BitSet owned = new BitSet(shardCount);
+            for (int shard = 0; shard < shardCount; shard++) {
+                if (instanceId.equals(ownerOf(shard, members))) {
+                    if (leaseStore.acquireOrRenew(shard, instanceId, leaseTtlMs)) {
+                        owned.set(shard);
+                    }
+                } else if (ownedShards.get(shard)) {
+                    leaseStore.release(shard, instanceId);
+                }
+            }
+
+            if (!owned.equals(ownedShards) || !active) {
+                log.info("Instance {} owns {}/{} shards across {} live instances.",
+                        instanceId, owned.cardinality(), shardCount, members.size());
+            }
+
+            ownedShards = owned;
+            active = true;
+        } catch (RuntimeException ex) {
+            if (active) {
+                log.warn("Shard heartbeat failed, falling back to advisory locks: {}", ex.getMessage());
+            }
+            ownedShards = new BitSet();
+            active = false;
+        }
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (!active) {
+            return;
+        }
+
+        try {
+            BitSet owned = ownedShards;
+            active = false;
+            ownedShards = new BitSet();
+            owned.stream().forEach(shard -> leaseStore.release(shard, instanceId));
+            leaseStore.leave(instanceId);
+            log.info("Instance {} released its shards.", instanceId);
+        } catch (RuntimeException ex) {
+            log.warn("Failed releasing shards on shutdown: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Whether this instance should process the portfolio in the current cycle.
+     */
+    public boolean shouldProcess(UUID portfolioId) {
+        return !active || ownsPortfolio(portfolioId);
+    }
+
+    /**
+     * Whether the portfolio belongs to a shard leased by this instance.
+     */
+    public boolean ownsPortfolio(UUID portfolioId) {
+        return active && ownedShards.get(shardOf(portfolioId));
+    }
+
+    /**
+     * Shards whose portfolios this instance processes: its leased shards, or all
+     * of them while sharding is inactive.
+     */
+    public List<Integer> processedShards() {
+        BitSet owned = ownedShards;
+        return active
+                ? owned.stream().boxed().toList()
+                : IntStream.range(0, shardCount).boxed().toList();
+    }
+
+    /**
+     * Whether this instance fetches the symbol's price. Each symbol maps to one
+     * shard, so across the cluster every symbol is fetched once per cycle.
+     */
+    public boolean processesSymbol(String symbol) {
+        return !active || ownedShards.get((int) Math.floorMod(mix(symbol.hashCode()), (long) shardCount));
+    }
+
+    public int shardOf(UUID portfolioId) {
+        long hash = mix(portfolioId.getMostSignificantBits() ^ portfolioId.getLeastSignificantBits());
+        return (int) Math.floorMod(hash, (long) shardCount);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    private String ownerOf(int shard, List<String> members) {
+        String owner = null;
+        long best = Long.MIN_VALUE;
+
+        for (String member : members) {
+            long score = mix(((long) member.hashCode() << 32) ^ shard);
+            if (owner == null || score > best || (score == best && member.compareTo(owner) < 0)) {
+                owner = member;
+                best = score;
+            }
+        }
+        return owner;
+    }
+
+    // SplitMix64 finalizer, stable across JVMs unlike identity hashes.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
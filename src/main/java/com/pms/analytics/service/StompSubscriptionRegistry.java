@@ -0,0 +1,90 @@
+package com.pms.analytics.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+/**
+ * Tracks the STOMP destinations that currently have subscribers on this
+ * instance, so publishers can skip work for destinations nobody watches.
+ */
+@Service
+public class StompSubscriptionRegistry {
+
+    // session id -> subscription id -> destination
+    private final Map<String, Map<String, String>> subscriptionsBySession = new ConcurrentHashMap<>();
+    // destination -> session id -> subscriptions of that session to it
+    private final Map<String, Map<String, Integer>> subscribers = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (accessor.getSessionId() == null || accessor.getSubscriptionId() == null || destination == null) {
+            return;
+        }
+
+        String previous = subscriptionsBySession
+                .computeIfAbsent(accessor.getSessionId(), s -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), destination);
+        if (previous != null) {
+            release(previous, accessor.getSessionId());
+        }
+        subscribers.compute(destination, (d, sessions) -> {
+            Map<String, Integer> updated = sessions != null ? sessions : new ConcurrentHashMap<>();
+            updated.merge(accessor.getSessionId(), 1, Integer::sum);
+            return updated;
+        });
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = accessor.getSessionId() != null
+                ? subscriptionsBySession.get(accessor.getSessionId())
+                : null;
+        if (subscriptions == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+
+        String destination = subscriptions.remove(accessor.getSubscriptionId());
+        if (destination != null) {
+            release(destination, accessor.getSessionId());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = subscriptionsBySession.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(destination -> release(destination, event.getSessionId()));
+        }
+    }
+
+    public boolean hasSubscribers(String destination) {
+        return subscribers.containsKey(destination);
+    }
+
+    public Set<String> subscribedDestinations() {
+        return Set.copyOf(subscribers.keySet());
+    }
+
+    public Set<String> sessions(String destination) {
+        Map<String, Integer> sessions = subscribers.get(destination);
+        return sessions != null ? Set.copyOf(sessions.keySet()) : Set.of();
+    }
+
+    private void release(String destination, String sessionId) {
+        subscribers.computeIfPresent(destination, (d, sessions) -> {
+            sessions.computeIfPresent(sessionId, (s, count) -> count > 1 ? count - 1 : null);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package com.pms.analytics.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import com.google.protobuf.MessageLite;
+import com.pms.analytics.dao.AnalysisDao;
+import com.pms.analytics.dto.PositionDeltaDto;
+import com.pms.analytics.dto.PositionUpdateDto;
+import com.pms.analytics.dto.RiskEventDto;
+import com.pms.analytics.dto.UnrealizedPnlDto;
+import com.pms.analytics.mapper.LiveUpdateMapper;
+import com.pms.analytics.mapper.RiskEventMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Answers a new subscription to a per-portfolio destination with the latest
+ * known values, sent to that session and subscription only, so clients do not
+ * wait for the next trade or price cycle. Later deltas apply on top of it.
+ */
+@Service
+@Slf4j
+public class SubscriptionSnapshotSender {
+
+    private final LatestValueStore latestValues;
+    private final AnalysisDao analysisDao;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MessageChannel clientOutboundChannel;
+
+    @Value("${websocket.topics.position-update}")
+    private String positionUpdateTopic;
+
+    @Value("${websocket.topics.unrealized-pnl}")
+    private String unrealizedPnlTopic;
+
+    @Value("${websocket.topics.risk-metrics}")
+    private String riskMetricsTopic;
+
+    @Value("${websocket.binary-frames.enabled:false}")
+    private boolean binaryFrames;
+
+    @Value("${websocket.binary-frames.suffix:/bin}")
+    private String binarySuffix;
+
+    public SubscriptionSnapshotSender(LatestValueStore latestValues, AnalysisDao analysisDao,
+            SimpMessagingTemplate messagingTemplate,
+            @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel) {
+        this.latestValues = latestValues;
+        this.analysisDao = analysisDao;
+        this.messagingTemplate = messagingTemplate;
+        this.clientOutboundChannel = clientOutboundChannel;
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (accessor.getSessionId() == null || accessor.getSubscriptionId() == null || destination == null) {
+            return;
+        }
+
+        boolean binary = binaryFrames && destination.endsWith(binarySuffix);
+        String topic = binary ? destination.substring(0, destination.length() - binarySuffix.length()) : destination;
+
+        try {
+            if (topic.startsWith(positionUpdateTopic + "/")) {
+                PositionUpdateDto snapshot = positionSnapshot(portfolioIdOf(topic, positionUpdateTopic));
+                if (snapshot != null) {
+                    send(accessor, destination, snapshot, binary ? LiveUpdateMapper.toProto(snapshot) : null);
+                }
+            } else if (topic.startsWith(unrealizedPnlTopic + "/")) {
+                LatestValueStore.Stamped<UnrealizedPnlDto> snapshot =
+                        latestValues.unrealized(portfolioIdOf(topic, unrealizedPnlTopic));
+                if (snapshot != null) {
+                    send(accessor, destination, snapshot.value(),
+                            binary ? LiveUpdateMapper.toProto(snapshot.value()) : null);
+                }
+            } else if (topic.startsWith(riskMetricsTopic + "/")) {
+                LatestValueStore.Stamped<RiskEventDto> snapshot =
+                        latestValues.risk(portfolioIdOf(topic, riskMetricsTopic));
+                if (snapshot != null) {
+                    send(accessor, destination, snapshot.value(),
+                            binary ? RiskEventMapper.toProto(snapshot.value()) : null);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            log.debug("No snapshot for destination {}: {}", destination, ex.getMessage());
+        } catch (RuntimeException ex) {
+            log.warn("Failed sending snapshot for {}: {}", destination, ex.getMessage());
+        }
+    }
+
+    // Positions are persistent state; live updates only carry changed symbols, so the store is
+    // seeded from the DB once per portfolio before it answers a snapshot.
+    private PositionUpdateDto positionSnapshot(UUID portfolioId) {
+        Map<String, PositionDeltaDto> positions = latestValues.positions(portfolioId);
+        if (positions == null) {
+            List<PositionDeltaDto> loaded = new ArrayList<>();
+            analysisDao.findByIdPortfolioId(portfolioId).forEach(position -> loaded.add(new PositionDeltaDto(
+                    position.getId().getSymbol(), position.getHoldings(),
+                    position.getTotalInvested(), position.getRealizedPnl())));
+            latestValues.seedPositions(portfolioId, loaded);
+            positions = latestValues.positions(portfolioId);
+        }
+        if (positions == null || positions.isEmpty()) {
+            return null;
+        }
+        return new PositionUpdateDto(portfolioId.toString(), new ArrayList<>(positions.values()));
+    }
+
+    private void send(StompHeaderAccessor subscribe, String destination, Object payload, MessageLite binary) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(subscribe.getSessionId());
+        headers.setSubscriptionId(subscribe.getSubscriptionId());
+        headers.setDestination(destination);
+        headers.setLeaveMutable(true);
+
+        Message<?> message;
+        if (binary != null) {
+            headers.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+            message = MessageBuilder.createMessage(binary.toByteArray(), headers.getMessageHeaders());
+        } else {
+            message = messagingTemplate.getMessageConverter().toMessage(payload, headers.getMessageHeaders());
+        }
+
+        if (message != null) {
+            clientOutboundChannel.send(message);
+        }
+    }
+
+    private static UUID portfolioIdOf(String destination, String topic) {
+        return UUID.fromString(destination.substring(topic.length() + 1));
+    }
+}
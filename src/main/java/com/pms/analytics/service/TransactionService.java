@@ -12,6 +12,7 @@ import java.util.UUID;
 import org.springframework.stereotype.Service;
 
 import com.pms.analytics.dao.AnalysisDao;
+import com.pms.analytics.dao.AnalysisReplayDao;
 import com.pms.analytics.dao.DltOutboxDao;
 import com.pms.analytics.dao.entity.AnalysisEntity;
 import com.pms.analytics.dao.entity.DltOutbox;
@@ -20,6 +21,7 @@ import com.pms.analytics.dto.TransactionDto;
 import com.pms.analytics.dto.TransactionOuterClass.Transaction;
 import com.pms.analytics.exception.InsufficientHoldingsException;
 import com.pms.analytics.mapper.TransactionMapper;
+import com.pms.analytics.utilities.PositionAccounting;
 import com.pms.analytics.utilities.TradeSide;
 
 import jakarta.transaction.Transactional;
@@ -37,8 +39,11 @@ public class TransactionService {
 
     private final IdempotencyService idempotencyService;
 
+    private final AnalysisReplayDao replayDao;
+
     @Transactional
     public BatchResult processBatchInTransaction(List<Transaction> messages) {
+        replayDao.enterIngestion();
         System.out.println("Processing the batch in the transaction service: ");
 
         List<Transaction> validMessages = new ArrayList<>();
@@ -167,44 +172,19 @@ public class TransactionService {
 
     private void handleBuy(AnalysisEntity entity, TransactionDto dto) {
 
-        long qty = dto.getQuantity();
-        BigDecimal price = dto.getBuyPrice();
-
-        entity.setHoldings(entity.getHoldings() + qty);
-
-        BigDecimal invested = price.multiply(BigDecimal.valueOf(qty));
-        entity.setTotalInvested(entity.getTotalInvested().add(invested));
+        PositionAccounting.applyBuy(entity, dto.getQuantity(), dto.getBuyPrice());
 
         System.out.println("BUY updated: " + entity);
     }
 
     private void handleSell(AnalysisEntity entity, TransactionDto dto) {
 
-        long qty = dto.getQuantity();
-        BigDecimal sellPrice = dto.getSellPrice();
-        BigDecimal buyPrice = dto.getBuyPrice(); // Already provided
-
-        long currentHoldings = entity.getHoldings();
-
-        // cannot sell more than current holdings
-        if (qty > currentHoldings) {
-            System.err.println("SELL failed: insufficient holdings. Trying to sell " + qty
-                    + " but only " + currentHoldings + " available.");
-            throw new InsufficientHoldingsException("Insufficient holdings: Trying to sell " + qty + " but only " + currentHoldings + " available.");
-        }
-
-        // (SellPrice - BuyPrice) * quantity
-        BigDecimal pnl = sellPrice.subtract(buyPrice).multiply(BigDecimal.valueOf(qty));
-        entity.setRealizedPnl(entity.getRealizedPnl().add(pnl));
-
-        // Reduce holdings & total invested
-        entity.setHoldings(currentHoldings - qty);
-        BigDecimal investedReduction = buyPrice.multiply(BigDecimal.valueOf(qty));
-        entity.setTotalInvested(entity.getTotalInvested().subtract(investedReduction));
-
-        // Reset total invested if no holdings left
-        if (entity.getHoldings() == 0) {
-            entity.setTotalInvested(BigDecimal.ZERO);
+        try {
+            PositionAccounting.applySell(entity, dto.getQuantity(), dto.getSellPrice(), dto.getBuyPrice());
+        } catch (InsufficientHoldingsException ex) {
+            System.err.println("SELL failed: insufficient holdings. Trying to sell " + dto.getQuantity()
+                    + " but only " + entity.getHoldings() + " available.");
+            throw ex;
         }
 
         System.out.println("SELL updated: " + entity);
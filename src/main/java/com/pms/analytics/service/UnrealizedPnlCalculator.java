@@ -1,15 +1,29 @@
 package com.pms.analytics.service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.pms.analytics.dao.TransactionsDao;
+import com.pms.analytics.dto.OpenPositionAggregateDto;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Unrealized PnL only goes to live viewers, so portfolios someone is watching
+ * are recomputed on every price cycle that affects them, while changes to the
+ * rest are collected and computed on a slower background cadence.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -17,22 +31,124 @@ public class UnrealizedPnlCalculator {
 
     private final TransactionsDao transactionsDao;
     private final UnrealizedPnlService unrealizedPnlService;
+    private final ShardOwnershipService shardOwnership;
+    private final WatchedPortfolios watchedPortfolios;
 
-    public void computeUnRealisedPnlAndBroadcast() {
+    @Value("${scheduler.unrealized.demand-driven:true}")
+    private boolean demandDriven;
 
-        try {
+    @Value("${scheduler.unrealized.watched-min-interval-ms:1000}")
+    private long watchedMinIntervalMs;
+
+    @Value("${scheduler.unrealized.background-interval-ms:300000}")
+    private long backgroundIntervalMs;
+
+    // Changes to unwatched portfolios wait here for the next background pass.
+    private final Set<UUID> deferred = ConcurrentHashMap.newKeySet();
+    private volatile boolean deferredFullSweep = false;
+    private volatile long lastBackgroundMs = 0;
+
+    // Read-only transaction keeps the aggregate cursor open; each portfolio is computed in its own transaction.
+    @Transactional(readOnly = true)
+    public void computeUnRealisedPnlAndBroadcast(PortfolioChangeSet changes, PriceSnapshot snapshot) {
+        if (!demandDriven) {
+            compute(changes, snapshot, null);
+            return;
+        }
+
+        // includes changes deferred before the first viewer arrived
+        Set<UUID> hot = new HashSet<>();
+        for (UUID portfolioId : watchedPortfolios.current()) {
+            if (changes.includes(portfolioId) || deferred.remove(portfolioId)) {
+                hot.add(portfolioId);
+            }
+        }
+        if (!hot.isEmpty()) {
+            compute(PortfolioChangeSet.of(hot), snapshot, watchedMinIntervalMs);
+        }
+
+        if (changes.fullSweep()) {
+            deferredFullSweep = true;
+        } else {
+            changes.portfolioIds().stream().filter(id -> !hot.contains(id)).forEach(deferred::add);
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastBackgroundMs < backgroundIntervalMs) {
+            return;
+        }
+        lastBackgroundMs = now;
+
+        if (deferredFullSweep) {
+            deferredFullSweep = false;
+            deferred.clear();
+            compute(PortfolioChangeSet.all(), snapshot, null);
+            return;
+        }
+
+        Set<UUID> due = new HashSet<>();
+        Iterator<UUID> it = deferred.iterator();
+        while (it.hasNext()) {
+            due.add(it.next());
+            it.remove();
+        }
+        if (!due.isEmpty()) {
+            compute(PortfolioChangeSet.of(due), snapshot, null);
+        }
+    }
+
+    // Every portfolio with open lots, regardless of viewers.
+    @Transactional(readOnly = true)
+    public void computeAll(PriceSnapshot snapshot) {
+        compute(PortfolioChangeSet.all(), snapshot, null);
+    }
+
+    private void compute(PortfolioChangeSet changes, PriceSnapshot snapshot, Long minIntervalMs) {
+
+        if (!changes.fullSweep()) {
+            log.info("Calculating Unrealized pnl for {} changed portfolios ...", changes.portfolioIds().size());
+            changes.portfolioIds().forEach(portfolioId -> computeGroup(portfolioId, null, snapshot, minIntervalMs));
+            return;
+        }
+
+        try (Stream<OpenPositionAggregateDto> aggregates = transactionsDao.streamAllOpenPositionAggregates()) {
             log.info("Calculating Unrealized pnl ...");
-            List<UUID> portfolioIds
-                    = transactionsDao.findDistinctPortfolioIdsWithOpenPositions();
 
-            for (UUID portfolioId : portfolioIds) {
+            Iterator<OpenPositionAggregateDto> it = aggregates.iterator();
+            UUID currentPortfolio = null;
+            List<OpenPositionAggregateDto> group = new ArrayList<>();
+
+            // rows arrive ordered by portfolio, so each portfolio is one contiguous group
+            while (it.hasNext()) {
+                OpenPositionAggregateDto aggregate = it.next();
 
-                unrealizedPnlService.computeUnrealizedPnlForSinglePortfolio(portfolioId);
-                
+                if (!aggregate.getPortfolioId().equals(currentPortfolio)) {
+                    computeGroup(currentPortfolio, group, snapshot, minIntervalMs);
+                    currentPortfolio = aggregate.getPortfolioId();
+                    group = new ArrayList<>();
+                }
+
+                group.add(aggregate);
             }
 
-        } catch (Exception e) {
-            System.err.println("Scheduler failed: " + e.getMessage());
+            computeGroup(currentPortfolio, group, snapshot, minIntervalMs);
+
+        } catch (RuntimeException ex) {
+            log.error("Unrealized pnl sweep failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    // Failures stay with the portfolio; the tracker has already cleared the dirty flags of the rest.
+    private void computeGroup(UUID portfolioId, List<OpenPositionAggregateDto> group, PriceSnapshot snapshot,
+            Long minIntervalMs) {
+        if (portfolioId == null || !shardOwnership.shouldProcess(portfolioId)) {
+            return;
+        }
+
+        try {
+            unrealizedPnlService.computeUnrealizedPnlForSinglePortfolio(portfolioId, group, snapshot, minIntervalMs);
+        } catch (RuntimeException ex) {
+            log.error("Unrealized pnl failed for portfolio {}: {}", portfolioId, ex.getMessage(), ex);
         }
     }
 }
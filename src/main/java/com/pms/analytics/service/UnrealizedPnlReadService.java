@@ -0,0 +1,143 @@
+package com.pms.analytics.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pms.analytics.dto.UnrealizedPnlDto;
+import com.pms.analytics.dto.UnrealizedPnlSnapshotDto;
+import com.pms.analytics.utilities.TokenBucket;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves the last computed unrealized PnL from the {@link LatestValueStore}.
+ * Missing or stale values are queued for recomputation, which runs on the
+ * scheduler at a bounded rate, so reads never compute on the request thread.
+ * Portfolios owned by another instance are computed for local reads only,
+ * without the status update and broadcast their owner does.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UnrealizedPnlReadService {
+
+    private final LatestValueStore latestValues;
+    private final UnrealizedPnlService unrealizedPnlService;
+    private final UnrealizedPnlCalculator unrealizedPnlCalculator;
+    private final PriceSnapshotService priceSnapshots;
+    private final ShardOwnershipService shardOwnership;
+
+    @Value("${api.unrealized.max-age-ms:30000}")
+    private long maxAgeMs;
+
+    @Value("${api.unrealized.max-pending:1000}")
+    private int maxPending;
+
+    @Value("${api.unrealized.recompute.permits-per-minute:600}")
+    private int permitsPerMinute;
+
+    @Value("${api.unrealized.recompute.burst:20}")
+    private int burst;
+
+    @Value("${api.unrealized.full-refresh-min-interval-ms:300000}")
+    private long fullRefreshMinIntervalMs;
+
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean fullRefreshRequested = false;
+    private volatile long lastFullRefreshMs = 0;
+
+    private TokenBucket rateLimiter;
+
+    @PostConstruct
+    void init() {
+        rateLimiter = new TokenBucket(permitsPerMinute, burst);
+    }
+
+    public UnrealizedPnlSnapshotDto get(UUID portfolioId) {
+        LatestValueStore.Stamped<UnrealizedPnlDto> latest = latestValues.unrealized(portfolioId);
+        if (latest == null || System.currentTimeMillis() - latest.computedAtMs() > maxAgeMs) {
+            requestRecompute(portfolioId);
+        }
+        return latest != null ? toDto(latest) : null;
+    }
+
+    // Portfolios with no value yet are left out and queued.
+    public List<UnrealizedPnlSnapshotDto> getAll(Collection<UUID> portfolioIds) {
+        List<UnrealizedPnlSnapshotDto> result = new ArrayList<>(portfolioIds.size());
+        for (UUID portfolioId : portfolioIds) {
+            UnrealizedPnlSnapshotDto snapshot = get(portfolioId);
+            if (snapshot != null) {
+                result.add(snapshot);
+            }
+        }
+        return result;
+    }
+
+    // Returns false when a full refresh ran too recently to start another.
+    public synchronized boolean requestFullRefresh() {
+        if (fullRefreshRequested) {
+            return true;
+        }
+        if (System.currentTimeMillis() - lastFullRefreshMs < fullRefreshMinIntervalMs) {
+            return false;
+        }
+        fullRefreshRequested = true;
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${api.unrealized.recompute.poll-ms:500}")
+    public void recomputePending() {
+        if (fullRefreshRequested) {
+            lastFullRefreshMs = System.currentTimeMillis();
+            pending.clear();
+            try {
+                unrealizedPnlCalculator.computeAll(priceSnapshots.current());
+            } finally {
+                fullRefreshRequested = false;
+            }
+            return;
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        PriceSnapshot snapshot = priceSnapshots.current();
+        Iterator<UUID> it = pending.iterator();
+        while (it.hasNext() && rateLimiter.tryAcquire()) {
+            UUID portfolioId = it.next();
+            it.remove();
+            try {
+                if (shardOwnership.shouldProcess(portfolioId)) {
+                    unrealizedPnlService.computeUnrealizedPnlForSinglePortfolio(portfolioId, null, snapshot, maxAgeMs);
+                } else {
+                    latestValues.putUnrealized(portfolioId, unrealizedPnlService.computeUnrealizedPnl(portfolioId));
+                }
+            } catch (RuntimeException ex) {
+                log.warn("On-demand unrealized pnl failed for portfolio {}: {}", portfolioId, ex.getMessage());
+            }
+        }
+    }
+
+    private void requestRecompute(UUID portfolioId) {
+        if (pending.size() < maxPending) {
+            pending.add(portfolioId);
+        }
+    }
+
+    private static UnrealizedPnlSnapshotDto toDto(LatestValueStore.Stamped<UnrealizedPnlDto> latest) {
+        return new UnrealizedPnlSnapshotDto(latest.value(), Instant.ofEpochMilli(latest.computedAtMs()));
+    }
+}
@@ -1,49 +1,53 @@
 package com.pms.analytics.service;
 
 import java.math.BigDecimal;
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import com.pms.analytics.dao.PortfolioUnrealizedPnlStatusDao;
 import com.pms.analytics.dao.TransactionsDao;
-import com.pms.analytics.dao.entity.TransactionsEntity;
+import com.pms.analytics.dto.OpenPositionAggregateDto;
 import com.pms.analytics.dto.UnrealizedPnlDto;
-import com.pms.analytics.externalRedis.ExternalPriceClient;
-import com.pms.analytics.externalRedis.RedisPriceCache;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import reactor.core.publisher.Mono;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UnrealizedPnlService {
 
-    private final RedisPriceCache priceCache;
-    private final ExternalPriceClient externalPriceClient;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final PriceSnapshotService priceSnapshots;
+    private final PortfolioUpdatePublisher updatePublisher;
     private final PortfolioUnrealizedPnlStatusDao portfolioUnrealizedPnlStatusDao;
     private final TransactionsDao transactionsDao;
 
-    @Value("${websocket.topics.unrealized-pnl}")
-    private String unrealizedPnlTopic;
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void computeUnrealizedPnlForSinglePortfolio(UUID portfolioId) {
+        computeUnrealizedPnlForSinglePortfolio(portfolioId, null, priceSnapshots.current());
+    }
 
-    private final Map<String, BigDecimal> lastKnownPrices = new ConcurrentHashMap<>();
+    // Aggregates may be supplied by a bulk cycle; when null they are queried for this portfolio.
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void computeUnrealizedPnlForSinglePortfolio(UUID portfolioId, List<OpenPositionAggregateDto> aggregates,
+            PriceSnapshot snapshot) {
+        computeUnrealizedPnlForSinglePortfolio(portfolioId, aggregates, snapshot, null);
+    }
 
-    @Transactional
-    public void computeUnrealizedPnlForSinglePortfolio(UUID portfolioId) {
+    // A minimum interval replaces the default recompute window, for portfolios with live viewers.
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void computeUnrealizedPnlForSinglePortfolio(UUID portfolioId, List<OpenPositionAggregateDto> aggregates,
+            PriceSnapshot snapshot, Long minIntervalMs) {
 
-        if (portfolioUnrealizedPnlStatusDao.computedRecently(portfolioId)) {
+        boolean recent = minIntervalMs != null
+                ? portfolioUnrealizedPnlStatusDao.computedWithin(portfolioId, minIntervalMs)
+                : portfolioUnrealizedPnlStatusDao.computedRecently(portfolioId);
+        if (recent) {
             log.info("Unrealized price has been recently computed for this portfolio {}.", portfolioId);
             return;
         }
@@ -55,83 +59,72 @@ public class UnrealizedPnlService {
 
         log.info("Acquired advisory lock for the portfolio: {} for calculating unrealized pnl.", portfolioId);
 
-        UnrealizedPnlDto payload = computeUnrealizedPnl(portfolioId);
+        if (aggregates == null) {
+            aggregates = transactionsDao.findOpenPositionAggregatesByPortfolioId(portfolioId);
+        }
+
+        UnrealizedPnlDto payload = computeUnrealizedPnl(portfolioId, aggregates, snapshot);
 
         portfolioUnrealizedPnlStatusDao.updateLastComputed(portfolioId);
         log.info("Updated last computed for the portfolio: {} by unrealized pnl calculator.", portfolioId);
 
-        // log.info("Calculated unrealized pnl {}.",payload);
-
         if (payload == null) {
-            log.info("Unrealized pnl payload is null for portfolio: {}.",portfolioId);
-            return;
+            // No open lots: an empty value answers readers and zeroes the symbols live clients still show.
+            log.info("No open lots for portfolio: {}.", portfolioId);
+            payload = emptyPayload(portfolioId);
         }
 
-        try {
-            messagingTemplate.convertAndSend(unrealizedPnlTopic, payload);
-            log.info("New unrealized p&l sent to web socket.", payload);
-        } catch (Exception e) {
-            System.err.println("Failed to send unrealized PnL: " + e.getMessage());
-        }
+        updatePublisher.publishUnrealized(payload);
+        log.info("New unrealized p&l queued for web socket {}.", payload);
 
     }
 
+    // Never null: a portfolio without open lots gets an empty value.
     public UnrealizedPnlDto computeUnrealizedPnl(UUID portfolioId) {
-        // fetch open transactions for portfolio
-        List<TransactionsEntity> openTxns
-                = transactionsDao.findOpenPositionsByPortfolioId(portfolioId);
+        // open lots aggregated per symbol in SQL
+        List<OpenPositionAggregateDto> aggregates
+                = transactionsDao.findOpenPositionAggregatesByPortfolioId(portfolioId);
+
+        UnrealizedPnlDto payload = computeUnrealizedPnl(portfolioId, aggregates, priceSnapshots.current());
+        return payload != null ? payload : emptyPayload(portfolioId);
+    }
+
+    public UnrealizedPnlDto computeUnrealizedPnl(UUID portfolioId, List<OpenPositionAggregateDto> aggregates,
+            PriceSnapshot snapshot) {
 
-        log.info("Fetched {} open positions from transaction.", openTxns.size());
+        log.info("Fetched {} open symbols from transaction.", aggregates.size());
 
-        if (openTxns.isEmpty()) {
+        if (aggregates.isEmpty()) {
             return null;
         }
 
+        Map<String, BigDecimal> prices = resolvePrices(aggregates, snapshot);
+
         Map<String, BigDecimal> symbolUnrealized = new HashMap<>();
         BigDecimal totalUnrealized = BigDecimal.ZERO;
 
-        for (TransactionsEntity txn : openTxns) {
+        for (OpenPositionAggregateDto aggregate : aggregates) {
             try {
-                String symbol = txn.getTrade().getSymbol();
-                Long remainingQty = txn.getQuantity();
-                BigDecimal buyPrice = txn.getBuyPrice();
+                String symbol = aggregate.getSymbol();
+                long quantity = aggregate.getQuantity();
 
-                if (remainingQty <= 0) {
-                    log.info("Tnx quantity is less than zero,so skipping the tnx.");
+                if (quantity <= 0) {
+                    log.info("Open quantity is less than zero,so skipping the symbol.");
                     continue;
                 }
 
-                // get current price
-                BigDecimal currentPrice = priceCache.getPrice(symbol);
-
-                if (currentPrice == null) {
-                    currentPrice = lastKnownPrices.get(symbol);
-                }
-
-                if (currentPrice == null) {
-                    try {
-                        Mono<BigDecimal> monoPrice = externalPriceClient.fetchPriceAsync(symbol);
-                        currentPrice = monoPrice.block(Duration.ofSeconds(3));
-                    } catch (Exception ignored) {
-                        log.error("Cannot fetch price from external client");
-                    }
-                }
+                BigDecimal currentPrice = prices.get(symbol);
 
                 if (currentPrice == null) {
                     continue;
                 }
 
-                lastKnownPrices.put(symbol, currentPrice);
+                // sum((price - buyPrice) * qty) == price * sum(qty) - sum(qty * buyPrice)
+                BigDecimal unrealized = currentPrice.multiply(BigDecimal.valueOf(quantity))
+                        .subtract(aggregate.getCostBasis());
 
-                // Unrealized PnL
-                BigDecimal unrealized = currentPrice.subtract(buyPrice)
-                        .multiply(BigDecimal.valueOf(remainingQty));
+                symbolUnrealized.merge(symbol, unrealized, BigDecimal::add);
 
-                // Add to per-symbol
-                symbolUnrealized.put(symbol,
-                        symbolUnrealized.getOrDefault(symbol, BigDecimal.ZERO).add(unrealized));
-
-                // Add to total
                 totalUnrealized = totalUnrealized.add(unrealized);
 
             } catch (Exception e) {
@@ -149,4 +142,26 @@ public class UnrealizedPnlService {
         return payload;
 
     }
+
+    private static UnrealizedPnlDto emptyPayload(UUID portfolioId) {
+        return new UnrealizedPnlDto(new HashMap<>(), BigDecimal.ZERO, portfolioId.toString());
+    }
+
+    // Symbols missing from the cache were already fetched once for the cycle, before any portfolio transaction.
+    private Map<String, BigDecimal> resolvePrices(List<OpenPositionAggregateDto> aggregates, PriceSnapshot snapshot) {
+        Map<String, BigDecimal> prices = new HashMap<>();
+
+        for (OpenPositionAggregateDto aggregate : aggregates) {
+            String symbol = aggregate.getSymbol();
+            BigDecimal currentPrice = snapshot.price(symbol);
+
+            if (currentPrice != null) {
+                prices.put(symbol, currentPrice);
+            } else {
+                log.debug("No price for {} yet, leaving it out of the unrealized p&l.", symbol);
+            }
+        }
+
+        return prices;
+    }
 }
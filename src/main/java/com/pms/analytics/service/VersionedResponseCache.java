@@ -0,0 +1,147 @@
+package com.pms.analytics.service;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Read responses cached per (endpoint, arguments, data version) as the JSON
+ * bytes served to clients, so each payload is serialized once and the cache is
+ * bounded by exactly what it holds. Concurrent requests for the same key share
+ * one computation. Only the newest version is kept: caching a newer one drops
+ * everything older. The oldest entries are evicted first.
+ */
+@Service
+@RequiredArgsConstructor
+public class VersionedResponseCache {
+
+    private final DataVersion dataVersion;
+    private final ShardOwnershipService shardOwnership;
+    private final ObjectMapper objectMapper;
+
+    @Value("${cache.response.max-bytes:67108864}")
+    private long maxBytes;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Key> insertionOrder = new ArrayDeque<>();
+    private long totalBytes;
+    private volatile long newestVersion = -1;
+
+    public DataVersion.Stamp version() {
+        return dataVersion.current();
+    }
+
+    /**
+     * Derived from the shared counter once this instance has caught up to it, so
+     * every instance behind a load balancer issues the same tag for the same
+     * data. Until then the instance id keeps another instance from matching a
+     * tag it never issued.
+     */
+    public String etag(DataVersion.Stamp version) {
+        if (version.isShared()) {
+            return "\"v" + version.shared() + "\"";
+        }
+        return "\"" + shardOwnership.getInstanceId() + "-" + version.local() + "\"";
+    }
+
+    public byte[] get(String endpoint, List<?> args, DataVersion.Stamp version, Supplier<?> loader) {
+        long local = version.local();
+        if (local < newestVersion) {
+            // A request that started before the last change; not worth caching.
+            return serialize(loader.get());
+        }
+        if (local > newestVersion) {
+            retainOnly(local);
+        }
+
+        Key key = new Key(endpoint, args, local);
+        Entry created = new Entry();
+        Entry existing = entries.putIfAbsent(key, created);
+
+        if (existing == null) {
+            byte[] json;
+            try {
+                json = serialize(loader.get());
+            } catch (RuntimeException ex) {
+                entries.remove(key, created);
+                created.json.completeExceptionally(ex);
+                throw ex;
+            }
+            created.json.complete(json);
+            account(key, created, json.length);
+            return json;
+        }
+
+        try {
+            return existing.json.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException re ? re : ex;
+        }
+    }
+
+    private synchronized void retainOnly(long version) {
+        if (version <= newestVersion) {
+            return;
+        }
+        newestVersion = version;
+
+        entries.entrySet().removeIf(e -> {
+            if (e.getKey().version() >= version) {
+                return false;
+            }
+            totalBytes -= e.getValue().bytes;
+            return true;
+        });
+        insertionOrder.removeIf(key -> key.version() < version);
+    }
+
+    private synchronized void account(Key key, Entry entry, long bytes) {
+        if (entries.get(key) != entry) {
+            return;
+        }
+        if (bytes > maxBytes) {
+            entries.remove(key);
+            return;
+        }
+
+        entry.bytes = bytes;
+        totalBytes += bytes;
+        insertionOrder.add(key);
+
+        while (totalBytes > maxBytes && !insertionOrder.isEmpty()) {
+            Entry evicted = entries.remove(insertionOrder.poll());
+            if (evicted != null) {
+                totalBytes -= evicted.bytes;
+            }
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize the response", ex);
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<byte[]> json = new CompletableFuture<>();
+        private long bytes;
+    }
+
+    private record Key(String endpoint, List<?> args, long version) {
+    }
+}
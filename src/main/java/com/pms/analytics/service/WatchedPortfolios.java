@@ -0,0 +1,98 @@
+package com.pms.analytics.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pms.analytics.externalRedis.RedisWatchedPortfolioStore;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Portfolios that currently have live viewers. Local viewers come from the
+ * STOMP subscriptions on this instance; they are shared through Redis so the
+ * instance computing a portfolio also knows about viewers connected elsewhere.
+ * When Redis is unreachable only local viewers are known.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WatchedPortfolios {
+
+    private final StompSubscriptionRegistry subscriptions;
+    private final RedisWatchedPortfolioStore store;
+
+    @Value("${websocket.topics.position-update}")
+    private String positionUpdateTopic;
+
+    @Value("${websocket.topics.unrealized-pnl}")
+    private String unrealizedPnlTopic;
+
+    @Value("${websocket.topics.risk-metrics}")
+    private String riskMetricsTopic;
+
+    @Value("${websocket.binary-frames.suffix:/bin}")
+    private String binarySuffix;
+
+    @Value("${websocket.watch.ttl-ms:15000}")
+    private long ttlMs;
+
+    private volatile Set<UUID> remote = Set.of();
+
+    @Scheduled(fixedDelayString = "${websocket.watch.heartbeat-ms:5000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        try {
+            store.touch(local().stream().map(UUID::toString).toList(), now, ttlMs);
+
+            Set<UUID> watched = new HashSet<>();
+            for (String id : store.watchedSince(now - ttlMs)) {
+                watched.add(UUID.fromString(id));
+            }
+            remote = watched;
+        } catch (RuntimeException ex) {
+            log.debug("Could not share watched portfolios: {}", ex.getMessage());
+            remote = Set.of();
+        }
+    }
+
+    public Set<UUID> current() {
+        Set<UUID> watched = new HashSet<>(remote);
+        watched.addAll(local());
+        return watched;
+    }
+
+    private Set<UUID> local() {
+        Set<UUID> watched = new HashSet<>();
+        for (String destination : subscriptions.subscribedDestinations()) {
+            UUID portfolioId = portfolioOf(destination);
+            if (portfolioId != null) {
+                watched.add(portfolioId);
+            }
+        }
+        return watched;
+    }
+
+    private UUID portfolioOf(String destination) {
+        String topic = destination.endsWith(binarySuffix)
+                ? destination.substring(0, destination.length() - binarySuffix.length())
+                : destination;
+
+        for (String prefix : List.of(positionUpdateTopic, unrealizedPnlTopic, riskMetricsTopic)) {
+            if (topic.startsWith(prefix + "/")) {
+                try {
+                    return UUID.fromString(topic.substring(prefix.length() + 1));
+                } catch (IllegalArgumentException ex) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,48 @@
+package com.pms.analytics.utilities;
+
+import java.math.BigDecimal;
+
+import com.pms.analytics.dao.entity.AnalysisEntity;
+import com.pms.analytics.exception.InsufficientHoldingsException;
+
+/**
+ * Buy/sell accounting applied to an analytics position. Shared by live ingestion
+ * and the trade replay so both produce identical positions.
+ */
+public final class PositionAccounting {
+
+    private PositionAccounting() {
+    }
+
+    public static void applyBuy(AnalysisEntity entity, long qty, BigDecimal price) {
+
+        entity.setHoldings(entity.getHoldings() + qty);
+
+        BigDecimal invested = price.multiply(BigDecimal.valueOf(qty));
+        entity.setTotalInvested(entity.getTotalInvested().add(invested));
+    }
+
+    public static void applySell(AnalysisEntity entity, long qty, BigDecimal sellPrice, BigDecimal buyPrice) {
+
+        long currentHoldings = entity.getHoldings();
+
+        // cannot sell more than current holdings
+        if (qty > currentHoldings) {
+            throw new InsufficientHoldingsException("Insufficient holdings: Trying to sell " + qty + " but only " + currentHoldings + " available.");
+        }
+
+        // (SellPrice - BuyPrice) * quantity
+        BigDecimal pnl = sellPrice.subtract(buyPrice).multiply(BigDecimal.valueOf(qty));
+        entity.setRealizedPnl(entity.getRealizedPnl().add(pnl));
+
+        // Reduce holdings & total invested
+        entity.setHoldings(currentHoldings - qty);
+        BigDecimal investedReduction = buyPrice.multiply(BigDecimal.valueOf(qty));
+        entity.setTotalInvested(entity.getTotalInvested().subtract(investedReduction));
+
+        // Reset total invested if no holdings left
+        if (entity.getHoldings() == 0) {
+            entity.setTotalInvested(BigDecimal.ZERO);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.pms.analytics.utilities;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.UUID;
+
+import com.pms.analytics.dto.RiskEventDto;
+
+/**
+ * Return, Sharpe and Sortino statistics over a series of daily portfolio
+ * values, oldest first, in BigDecimal as published in risk events.
+ */
+public final class RiskStatistics {
+
+    private static final int SCALE = 8;
+    private static final MathContext MC = new MathContext(10, RoundingMode.HALF_UP);
+
+    private RiskStatistics() {
+    }
+
+    // Needs at least three values: the standard deviation divides by (returns - 1).
+    public static RiskEventDto compute(UUID portfolioId, List<BigDecimal> values) {
+
+        // Compute daily returns
+        BigDecimal sum = BigDecimal.ZERO;
+        BigDecimal sumNegativeSquared = BigDecimal.ZERO;
+        int negativeCount = 0;
+
+        for (int i = 0; i < values.size() - 1; i++) {
+            BigDecimal today = values.get(i + 1);
+            BigDecimal yesterday = values.get(i);
+
+            // Daily return = (today - yesterday) / yesterday
+            BigDecimal dailyReturn = today.subtract(yesterday)
+                    .divide(yesterday, SCALE, RoundingMode.HALF_UP);
+
+            sum = sum.add(dailyReturn);
+
+            // store only negative returns for sortino
+            if (dailyReturn.compareTo(BigDecimal.ZERO) < 0) {
+                sumNegativeSquared = sumNegativeSquared.add(dailyReturn.pow(2, MC));
+                negativeCount++;
+            }
+        }
+
+        // Average Daily Return
+        BigDecimal avgDailyReturn = sum.divide(
+                BigDecimal.valueOf(values.size() - 1),
+                SCALE,
+                RoundingMode.HALF_UP
+        );
+
+        // Standard deviation (Sharpe denominator)
+        BigDecimal variance = BigDecimal.ZERO;
+        for (int i = 0; i < values.size() - 1; i++) {
+            BigDecimal today = values.get(i + 1);
+            BigDecimal yesterday = values.get(i);
+            BigDecimal dailyReturn = today.subtract(yesterday)
+                    .divide(yesterday, SCALE, RoundingMode.HALF_UP);
+
+            variance = variance.add(
+                    (dailyReturn.subtract(avgDailyReturn)).pow(2, MC)
+            );
+        }
+
+        BigDecimal stdDev = variance
+                .divide(BigDecimal.valueOf(values.size() - 2), MC)
+                .sqrt(MC);
+
+        // Downside deviation (Sortino denominator)
+        BigDecimal downsideDev = (negativeCount > 0)
+                ? sumNegativeSquared
+                        .divide(BigDecimal.valueOf(negativeCount), MC)
+                        .sqrt(MC)
+                : BigDecimal.ZERO;
+
+        return new RiskEventDto(
+                portfolioId,
+                avgDailyReturn.floatValue(), // average rate of return
+                stdDev.compareTo(BigDecimal.ZERO) > 0
+                ? avgDailyReturn.divide(stdDev, MC).floatValue()
+                : 0f, // Sharpe Ratio
+                downsideDev.compareTo(BigDecimal.ZERO) > 0
+                ? avgDailyReturn.divide(downsideDev, MC).floatValue()
+                : 0f // Sortino Ratio
+        );
+    }
+}
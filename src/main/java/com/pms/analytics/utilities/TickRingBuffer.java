@@ -0,0 +1,92 @@
+package com.pms.analytics.utilities;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-capacity ring of (epoch millis, price) ticks for one symbol, laid out
+ * in a ByteBuffer: a 16 byte header (total ticks written, capacity) followed by
+ * 16 byte entries. The buffer is either on the heap or a memory-mapped file, in
+ * which case the ticks survive a restart.
+ *
+ * Single writer, any number of readers. Readers visit a range in place and are
+ * told when the writer overwrote part of it while they were reading.
+ */
+public class TickRingBuffer {
+
+    @FunctionalInterface
+    public interface TickVisitor {
+        void visit(long timestampMs, double price);
+    }
+
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 16;
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+
+    private volatile long written;
+
+    public TickRingBuffer(ByteBuffer buffer, int capacity) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+
+        boolean sameLayout = buffer.getLong(8) == capacity;
+        this.written = sameLayout ? buffer.getLong(0) : 0L;
+        buffer.putLong(0, written);
+        buffer.putLong(8, capacity);
+    }
+
+    public static int bytesFor(int capacity) {
+        return HEADER_BYTES + capacity * ENTRY_BYTES;
+    }
+
+    public static TickRingBuffer onHeap(int capacity) {
+        return new TickRingBuffer(ByteBuffer.allocate(bytesFor(capacity)), capacity);
+    }
+
+    public void append(long timestampMs, double price) {
+        long next = written;
+        int offset = offset(next);
+        buffer.putLong(offset, timestampMs);
+        buffer.putDouble(offset + 8, price);
+
+        buffer.putLong(0, next + 1);
+        written = next + 1;
+    }
+
+    /**
+     * Visits the ticks at or after {@code fromMs}, oldest first, without copying,
+     * and returns how many were visited; -1 when the writer overwrote part of the
+     * range meanwhile, in which case the caller should discard what it saw.
+     * The oldest slot is never read: the writer may be halfway through
+     * overwriting it, so at most {@code capacity - 1} ticks are visible.
+     */
+    public int forEachSince(long fromMs, TickVisitor visitor) {
+        long end = written;
+        long oldest = Math.max(0, end + 1 - capacity);
+
+        long start = end;
+        while (start > oldest && buffer.getLong(offset(start - 1)) >= fromMs) {
+            start--;
+        }
+
+        for (long seq = start; seq < end; seq++) {
+            int offset = offset(seq);
+            visitor.visit(buffer.getLong(offset), buffer.getDouble(offset + 8));
+        }
+
+        return start >= written + 1 - capacity ? (int) (end - start) : -1;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long written() {
+        return written;
+    }
+
+    private int offset(long sequence) {
+        return HEADER_BYTES + (int) (sequence % capacity) * ENTRY_BYTES;
+    }
+}
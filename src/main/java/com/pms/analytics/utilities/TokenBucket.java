@@ -0,0 +1,54 @@
+package com.pms.analytics.utilities;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservation-style token bucket. Callers take a token and are told how long to
+ * wait before using it, so bursts up to the capacity go out at once and
+ * everything after that is spaced at the refill rate. A reservation whose wait
+ * would exceed the caller's limit takes nothing, so the bucket never runs into
+ * debt that later callers would have to pay off.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double nanosPerToken;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(int permitsPerMinute, int burst) {
+        this.capacity = Math.max(burst, 1);
+        this.nanosPerToken = (double) TimeUnit.MINUTES.toNanos(1) / Math.max(permitsPerMinute, 1);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    // Returns the nanos the caller must wait before its request may go out, or -1 when that exceeds maxWaitNanos.
+    public synchronized long tryReserve(long maxWaitNanos) {
+        refill();
+
+        long waitNanos = tokens >= 1 ? 0L : (long) ((1 - tokens) * nanosPerToken);
+        if (waitNanos > maxWaitNanos) {
+            return -1L;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    // Takes a token only when one is available now; for callers that skip rather than wait.
+    public synchronized boolean tryAcquire() {
+        return tryReserve(0L) == 0L;
+    }
+
+    // Gives back a reserved token whose request never went out.
+    public synchronized void release() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / nanosPerToken);
+        lastRefillNanos = now;
+    }
+}
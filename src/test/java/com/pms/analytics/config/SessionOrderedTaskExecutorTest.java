@@ -0,0 +1,140 @@
+package com.pms.analytics.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+class SessionOrderedTaskExecutorTest {
+
+    private SessionOrderedTaskExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new SessionOrderedTaskExecutor(1000, 10_000);
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void deliversEachSessionInSendOrder() throws InterruptedException {
+        Map<String, List<Integer>> delivered = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(3 * 500);
+
+        for (int i = 0; i < 500; i++) {
+            for (String session : List.of("a", "b", "c")) {
+                int sequence = i;
+                executor.execute(task(session, () -> {
+                    delivered.computeIfAbsent(session, s -> new ArrayList<>()).add(sequence);
+                    done.countDown();
+                }));
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (String session : List.of("a", "b", "c")) {
+            List<Integer> order = delivered.get(session);
+            assertEquals(500, order.size());
+            for (int i = 0; i < order.size(); i++) {
+                assertEquals(i, order.get(i), "session " + session);
+            }
+        }
+    }
+
+    @Test
+    void reportsTheBacklogOfASlowSession() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+
+        executor.execute(task("slow", () -> await(release)));
+        for (int i = 0; i < 9; i++) {
+            executor.execute(task("slow", () -> { }));
+        }
+        executor.execute(task("fast", fastDone::countDown));
+
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        assertEquals(10, executor.backlog("slow"));
+        assertEquals(0, executor.backlog("fast"));
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.totalBacklog() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, executor.totalBacklog());
+    }
+
+    @Test
+    void closesASessionPastItsQueueLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("slow");
+        executor.register(session);
+
+        executor.execute(task("slow", () -> await(release)));
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(task("slow", () -> { }));
+        }
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, executor.backlog("slow"));
+        release.countDown();
+    }
+
+    private static MessageHandlingRunnable task(String sessionId, Runnable body) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+
+        return new MessageHandlingRunnable() {
+            @Override
+            public Message<?> getMessage() {
+                return message;
+            }
+
+            @Override
+            public MessageHandler getMessageHandler() {
+                return m -> body.run();
+            }
+
+            @Override
+            public void run() {
+                body.run();
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.pms.analytics.externalRedis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ExternalPriceClientTest {
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    private volatile long responseDelayMs = 0;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        executor = Executors.newFixedThreadPool(16);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/quote", this::quote);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void coalescesConcurrentRequestsForSameSymbol() {
+        responseDelayMs = 200;
+        ExternalPriceClient client = client(600, 100, 8);
+
+        List<BigDecimal> prices = Flux.range(0, 10)
+                .flatMap(i -> client.fetchPriceAsync("AAPL"))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(10, prices.size());
+        assertEquals(1, requests.get());
+        assertEquals(0, new BigDecimal("101.25").compareTo(prices.get(0)));
+    }
+
+    @Test
+    void refreshBoundsConcurrencyAndCompletesAfterAllPricesLand() {
+        responseDelayMs = 100;
+        ExternalPriceClient client = client(6000, 100, 2);
+
+        List<String> symbols = IntStream.range(0, 10).mapToObj(i -> "SYM" + i).toList();
+        Map<String, BigDecimal> prices = client.refreshPrices(symbols).block(Duration.ofSeconds(5));
+
+        assertEquals(10, prices.size());
+        assertEquals(10, requests.get());
+        assertTrue(maxActive.get() <= 2, "max concurrent requests was " + maxActive.get());
+    }
+
+    @Test
+    void rateLimitSpacesRequestsBeyondBurst() {
+        // 600/min = one token per 100 ms, burst of 2
+        ExternalPriceClient client = client(600, 2, 8);
+
+        long start = System.nanoTime();
+        Map<String, BigDecimal> prices = client.refreshPrices(List.of("A", "B", "C", "D", "E"))
+                .block(Duration.ofSeconds(5));
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals(5, prices.size());
+        assertTrue(elapsedMs >= 250, "five requests with burst 2 finished in " + elapsedMs + " ms");
+    }
+
+    @Test
+    void quotaSmallerThanSymbolListRotatesWithoutStarvingLaterCycles() {
+        // 600/min = one token per 100 ms, burst of 2, 300 ms per refresh: about 3-5 symbols per cycle
+        // The first request pays for the HTTP client's start-up, which alone can exceed a 300 ms cycle
+        client(600, 2, 8, 5000).refreshPrices(List.of("WARMUP")).block(Duration.ofSeconds(5));
+        requests.set(0);
+
+        ExternalPriceClient client = client(600, 2, 8, 300);
+        List<String> symbols = IntStream.range(0, 12).mapToObj(i -> "SYM" + i).toList();
+
+        Set<String> seen = new HashSet<>();
+        long start = System.nanoTime();
+        for (int cycle = 0; cycle < 6; cycle++) {
+            Map<String, BigDecimal> prices = client.refreshPrices(symbols).block(Duration.ofSeconds(5));
+
+            assertFalse(prices.isEmpty(), "cycle " + cycle + " got no prices");
+            seen.addAll(prices.keySet());
+        }
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals(12, seen.size(), "symbols never fetched: " + symbols.stream().filter(s -> !seen.contains(s)).toList());
+        assertTrue(requests.get() <= 2 + elapsedMs / 100 + 1,
+                requests.get() + " requests in " + elapsedMs + " ms exceed the quota");
+    }
+
+    @Test
+    void refreshLeavesOutFailedSymbols() {
+        ExternalPriceClient client = client(6000, 100, 4);
+
+        Map<String, BigDecimal> prices = client.refreshPrices(List.of("AAPL", "FAIL", "MSFT"))
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(2, prices.size());
+        assertFalse(prices.containsKey("FAIL"));
+    }
+
+    @Test
+    void failedFetchIsNotCachedForLaterCalls() {
+        ExternalPriceClient client = client(6000, 100, 4);
+
+        Mono<BigDecimal> failing = client.fetchPriceAsync("FAIL").onErrorResume(ex -> Mono.empty());
+        failing.block(Duration.ofSeconds(5));
+        client.fetchPriceAsync("FAIL").onErrorResume(ex -> Mono.empty()).block(Duration.ofSeconds(5));
+
+        assertEquals(2, requests.get());
+    }
+
+    private ExternalPriceClient client(int permitsPerMinute, int burst, int maxConcurrency) {
+        return client(permitsPerMinute, burst, maxConcurrency, 5000L);
+    }
+
+    private ExternalPriceClient client(int permitsPerMinute, int burst, int maxConcurrency, long refreshTimeoutMs) {
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .build();
+
+        ExternalPriceClient client = new ExternalPriceClient(webClient, null);
+        ReflectionTestUtils.setField(client, "externalApiKey", "test");
+        ReflectionTestUtils.setField(client, "permitsPerMinute", permitsPerMinute);
+        ReflectionTestUtils.setField(client, "burst", burst);
+        ReflectionTestUtils.setField(client, "maxConcurrency", maxConcurrency);
+        ReflectionTestUtils.setField(client, "refreshTimeoutMs", refreshTimeoutMs);
+        client.init();
+        return client;
+    }
+
+    private void quote(HttpExchange exchange) throws java.io.IOException {
+        requests.incrementAndGet();
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            if (responseDelayMs > 0) {
+                Thread.sleep(responseDelayMs);
+            }
+
+            boolean fail = exchange.getRequestURI().getQuery().contains("symbol=FAIL");
+            byte[] body = (fail ? "{\"error\":\"boom\"}" : "{\"c\":101.25}").getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(fail ? 500 : 200, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            active.decrementAndGet();
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.pms.analytics.externalRedis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.pms.analytics.externalRedis.PriceCodec.DecodedPrice;
+
+class PriceCodecTest {
+
+    private static final long NOW = 1_760_000_000_000L;
+
+    @Test
+    void roundTripsTypicalQuoteInAboutTwelveBytes() {
+        byte[] bytes = PriceCodec.encode(new BigDecimal("101.25"), NOW);
+
+        DecodedPrice decoded = PriceCodec.decode(bytes);
+
+        assertEquals(new BigDecimal("101.25"), decoded.price());
+        assertEquals(NOW, decoded.timestampMs());
+        assertTrue(bytes.length <= 12, "typical quote took " + bytes.length + " bytes");
+    }
+
+    @Test
+    void roundTripsSignsZeroAndScales() {
+        for (String value : new String[]{"0", "0.00", "-3.5", "1E+3", "0.000001", "-0.0001", "123456789.123456"}) {
+            BigDecimal price = new BigDecimal(value);
+
+            BigDecimal decoded = PriceCodec.decodePrice(PriceCodec.encode(price, NOW));
+
+            assertEquals(0, price.compareTo(decoded), value + " decoded as " + decoded);
+        }
+    }
+
+    @Test
+    void roundTripsUnscaledValuesAtTheLongLimits() {
+        BigDecimal max = new BigDecimal(BigInteger.valueOf(Long.MAX_VALUE), 4);
+        BigDecimal min = new BigDecimal(BigInteger.valueOf(Long.MIN_VALUE + 1), 4);
+
+        assertEquals(0, max.compareTo(PriceCodec.decodePrice(PriceCodec.encode(max, NOW))));
+        assertEquals(0, min.compareTo(PriceCodec.decodePrice(PriceCodec.encode(min, NOW))));
+    }
+
+    @Test
+    void rejectsPricesOutsideTheCodecRange() {
+        BigDecimal tooWide = new BigDecimal(BigInteger.ONE.shiftLeft(64), 2);
+        BigDecimal tooFine = BigDecimal.ONE.scaleByPowerOfTen(-200);
+
+        assertThrows(IllegalArgumentException.class, () -> PriceCodec.encode(tooWide, NOW));
+        assertThrows(IllegalArgumentException.class, () -> PriceCodec.encode(tooFine, NOW));
+    }
+
+    @Test
+    void readsLegacyJsonValues() {
+        DecodedPrice decoded = PriceCodec.decode(PriceCodec.encodeLegacy(new BigDecimal("101.25")));
+
+        assertEquals(0, new BigDecimal("101.25").compareTo(decoded.price()));
+        assertEquals(0L, decoded.timestampMs());
+    }
+
+    @Test
+    void missingValuesDecodeToNull() {
+        assertNull(PriceCodec.decode(null));
+        assertNull(PriceCodec.decode(new byte[0]));
+        assertNull(PriceCodec.decodePrice(null));
+    }
+}
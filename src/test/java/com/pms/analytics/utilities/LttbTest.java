@@ -0,0 +1,101 @@
+package com.pms.analytics.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class LttbTest {
+
+    @Test
+    void keepsEveryPointWhenThresholdIsAtLeastTheLength() {
+        long[] x = xs(5);
+        double[] y = {1, 2, 3, 4, 5};
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, Lttb.select(x, y, 5, 5));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, Lttb.select(x, y, 5, 50));
+    }
+
+    @Test
+    void keepsEveryPointWhenThresholdIsBelowThree() {
+        long[] x = xs(10);
+        double[] y = new double[10];
+
+        assertArrayEquals(IntStream.range(0, 10).toArray(), Lttb.select(x, y, 10, 2));
+        assertArrayEquals(IntStream.range(0, 10).toArray(), Lttb.select(x, y, 10, 0));
+    }
+
+    @Test
+    void onlyReadsTheGivenLength() {
+        long[] x = xs(100);
+        double[] y = new double[100];
+
+        assertArrayEquals(new int[]{0, 1, 2}, Lttb.select(x, y, 3, 10));
+        assertArrayEquals(new int[0], Lttb.select(x, y, 0, 10));
+    }
+
+    @Test
+    void keepsFirstAndLastPoint() {
+        long[] x = xs(1000);
+        double[] y = new double[1000];
+        Arrays.setAll(y, i -> Math.sin(i / 10.0));
+
+        int[] selected = Lttb.select(x, y, 1000, 50);
+
+        assertEquals(50, selected.length);
+        assertEquals(0, selected[0]);
+        assertEquals(999, selected[49]);
+    }
+
+    @Test
+    void picksOnePointFromEachBucketInOrder() {
+        for (int length = 4; length <= 300; length += 7) {
+            for (int threshold = 3; threshold < length; threshold += 5) {
+                long[] x = xs(length);
+                double[] y = new double[length];
+                Arrays.setAll(y, i -> (i * 7919) % 101);
+
+                int[] selected = Lttb.select(x, y, length, threshold);
+
+                assertEquals(threshold, selected.length, length + "/" + threshold);
+                double bucketSize = (double) (length - 2) / (threshold - 2);
+                for (int bucket = 0; bucket < threshold - 2; bucket++) {
+                    int start = (int) Math.floor(bucket * bucketSize) + 1;
+                    int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+                    int index = selected[bucket + 1];
+                    assertTrue(index >= start && index < end,
+                            length + "/" + threshold + ": bucket " + bucket + " chose " + index);
+                }
+                for (int i = 1; i < selected.length; i++) {
+                    assertTrue(selected[i] > selected[i - 1], length + "/" + threshold);
+                }
+            }
+        }
+    }
+
+    @Test
+    void preservesPeaksAndTroughs() {
+        long[] x = xs(1000);
+        double[] y = new double[1000];
+        Arrays.fill(y, 100);
+        y[123] = 500;
+        y[456] = -300;
+        y[789] = 250;
+
+        int[] selected = Lttb.select(x, y, 1000, 20);
+
+        assertTrue(Arrays.binarySearch(selected, 123) >= 0);
+        assertTrue(Arrays.binarySearch(selected, 456) >= 0);
+        assertTrue(Arrays.binarySearch(selected, 789) >= 0);
+    }
+
+    private static long[] xs(int length) {
+        long[] x = new long[length];
+        Arrays.setAll(x, i -> 1_000L * i);
+        return x;
+    }
+}
@@ -0,0 +1,89 @@
+package com.pms.analytics.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TickRingBufferTest {
+
+    @Test
+    void visitsTicksSinceTheGivenTimeOldestFirst() {
+        TickRingBuffer ring = TickRingBuffer.onHeap(8);
+        for (long ts = 1; ts <= 5; ts++) {
+            ring.append(ts, ts * 10.0);
+        }
+
+        List<Long> seen = new ArrayList<>();
+        assertEquals(3, ring.forEachSince(3, (ts, price) -> seen.add(ts)));
+        assertEquals(List.of(3L, 4L, 5L), seen);
+        assertEquals(0, ring.forEachSince(6, (ts, price) -> seen.add(ts)));
+    }
+
+    @Test
+    void keepsTheNewestTicksAcrossWraparoundButNeverTheSlotBeingOverwritten() {
+        TickRingBuffer ring = TickRingBuffer.onHeap(4);
+        for (long ts = 1; ts <= 10; ts++) {
+            ring.append(ts, ts * 10.0);
+        }
+
+        List<Long> timestamps = new ArrayList<>();
+        List<Double> prices = new ArrayList<>();
+        assertEquals(3, ring.forEachSince(0, (ts, price) -> {
+            timestamps.add(ts);
+            prices.add(price);
+        }));
+        assertEquals(List.of(8L, 9L, 10L), timestamps);
+        assertEquals(List.of(80.0, 90.0, 100.0), prices);
+    }
+
+    @Test
+    void reportsAnOvertakeWhenTheWriterReachesTheVisitedRange() {
+        TickRingBuffer ring = TickRingBuffer.onHeap(4);
+        for (long ts = 1; ts <= 4; ts++) {
+            ring.append(ts, ts);
+        }
+
+        // Ticks 2..4 are visible; one more append starts overwriting the slot of tick 2.
+        long[] next = {5};
+        assertEquals(-1, ring.forEachSince(0, (ts, price) -> {
+            if (ts == 2) {
+                ring.append(next[0], next[0]++);
+            }
+        }));
+    }
+
+    @Test
+    void aWriterThatStaysClearOfTheVisitedRangeIsNotAnOvertake() {
+        TickRingBuffer ring = TickRingBuffer.onHeap(4);
+        for (long ts = 1; ts <= 4; ts++) {
+            ring.append(ts, ts);
+        }
+
+        // Ticks 3 and 4 only; the append overwrites the slot of tick 1, which was not visited.
+        long[] next = {5};
+        assertEquals(2, ring.forEachSince(3, (ts, price) -> {
+            if (ts == 3) {
+                ring.append(next[0], next[0]++);
+            }
+        }));
+    }
+
+    @Test
+    void reopeningTheSameBufferKeepsItsTicks() {
+        ByteBuffer buffer = ByteBuffer.allocate(TickRingBuffer.bytesFor(4));
+        TickRingBuffer ring = new TickRingBuffer(buffer, 4);
+        ring.append(1, 1.5);
+        ring.append(2, 2.5);
+
+        TickRingBuffer reopened = new TickRingBuffer(buffer, 4);
+
+        List<Double> prices = new ArrayList<>();
+        assertEquals(2, reopened.written());
+        assertEquals(2, reopened.forEachSince(0, (ts, price) -> prices.add(price)));
+        assertEquals(List.of(1.5, 2.5), prices);
+    }
+}